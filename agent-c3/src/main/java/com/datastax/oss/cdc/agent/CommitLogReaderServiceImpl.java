@@ -23,6 +23,7 @@ import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.commitlog.CommitLogReader;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -32,20 +33,55 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class CommitLogReaderServiceImpl extends CommitLogReaderService {
 
+    /**
+     * Processes the entries of the segments in parallel when segmentProcessingThreads > 1, null otherwise.
+     */
+    final ExecutorService segmentProcessingExecutor;
+
+    /**
+     * Skips the mutations emitted by the primary replica when primaryReplicaOnly is enabled.
+     */
+    final PrimaryReplicaFilter primaryReplicaFilter;
+
     public CommitLogReaderServiceImpl(AgentConfig config,
                                       MutationSender<CFMetaData> mutationSender,
                                       SegmentOffsetWriter segmentOffsetWriter,
                                       CommitLogTransfer commitLogTransfer) {
         super(config, mutationSender, segmentOffsetWriter, commitLogTransfer);
+        int processors = config.cdcConcurrentProcessors == -1 ? DatabaseDescriptor.getFlushWriters() : config.cdcConcurrentProcessors;
         this.tasksExecutor = new JMXEnabledThreadPoolExecutor(
-                config.cdcConcurrentProcessors == -1 ? DatabaseDescriptor.getFlushWriters() : config.cdcConcurrentProcessors,
-                config.cdcConcurrentProcessors == -1 ? DatabaseDescriptor.getFlushWriters() : config.cdcConcurrentProcessors,
+                processors,
+                processors,
                 1, TimeUnit.MINUTES,
                 new LinkedBlockingQueue<>(),
                 new NamedThreadFactory("CdcCommitlogProcessor"),
                 CdcMetrics.CDC_AGENT_MBEAN_NAME);
+        segmentScheduler.configure(tasksExecutor, processors, config.maxQueuedTasks);
+        this.primaryReplicaFilter = new PrimaryReplicaFilter(config, fallbackReplicaMutations);
+        this.segmentProcessingExecutor = config.segmentProcessingThreads > 1
+                ? new JMXEnabledThreadPoolExecutor(
+                    config.segmentProcessingThreads,
+                    config.segmentProcessingThreads,
+                    1, TimeUnit.MINUTES,
+                    new LinkedBlockingQueue<>(),
+                    new NamedThreadFactory("CdcSegmentProcessor"),
+                    CdcMetrics.CDC_AGENT_MBEAN_NAME)
+                : null;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (segmentProcessingExecutor != null) {
+            segmentProcessingExecutor.shutdown();
+        }
     }
 
+    /**
+     * Max number of decoded commitlog entries waiting for processing, per segment processing thread.
+     */
+    static final int MAX_QUEUED_ENTRIES_PER_THREAD = 1024;
+
     @SuppressWarnings("unchecked")
     public Task createTask(String filename, long segment, int syncPosition, boolean completed) {
         return new Task(filename, segment, syncPosition, true) {
@@ -53,6 +89,7 @@ public class CommitLogReaderServiceImpl extends CommitLogReaderService {
             public void run() {
                 log.debug("Starting task={}", this);
                 File file = getFile();
+                PartitionOrderedExecutor partitionExecutor = null;
                 try {
                     if (!file.exists()) {
                         log.warn("CL file={} does not exist any more, ignoring", file.getName());
@@ -60,11 +97,29 @@ public class CommitLogReaderServiceImpl extends CommitLogReaderService {
                         return;
                     }
                     CommitLogReader commitLogReader = new CommitLogReader();
-                    CommitLogReadHandlerImpl commitLogReadHandler = new CommitLogReadHandlerImpl(config, segmentOffsetWriter, (MutationSender<CFMetaData>) mutationSender, this);
+                    partitionExecutor = segmentProcessingExecutor == null
+                            ? null
+                            : new PartitionOrderedExecutor(segmentProcessingExecutor,
+                                4 * config.segmentProcessingThreads,
+                                MAX_QUEUED_ENTRIES_PER_THREAD * config.segmentProcessingThreads);
+                    CommitLogReadHandlerImpl commitLogReadHandler = new CommitLogReadHandlerImpl(config, segmentOffsetWriter, (MutationSender<CFMetaData>) mutationSender, this, partitionExecutor, primaryReplicaFilter);
                     commitLogReader.readCommitLogSegment(commitLogReadHandler, file, false);
+                    if (partitionExecutor != null) {
+                        // all entries must be processed before waiting for the in-flight messages
+                        partitionExecutor.await();
+                    }
                     finish(TaskStatus.SUCCESS, -1);
                 } catch (Exception e) {
                     log.warn("Task failed {}", this, e);
+                    if (partitionExecutor != null) {
+                        // no entry may still be sending when the task is retried
+                        partitionExecutor.abort(e);
+                        try {
+                            partitionExecutor.await();
+                        } catch (Exception e2) {
+                            // already failed
+                        }
+                    }
                     finish(TaskStatus.ERROR, -1);
                 } finally {
                     CdcMetrics.executedTasks.inc();
@@ -15,8 +15,10 @@
  */
 package com.datastax.oss.cdc.agent;
 
+import com.datastax.oss.cdc.MutationOperation;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.config.Schema;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -24,45 +26,48 @@ import java.util.UUID;
 
 public class Mutation extends AbstractMutation<CFMetaData> {
 
-    public Mutation(UUID nodeId, Long segment, int position, Object[] pkValues, long tsMicro, String md5Digest, CFMetaData t, Object token) {
-        super(nodeId, segment, position, pkValues, tsMicro, md5Digest, t, token);
+    public Mutation(UUID nodeId, Long segment, int position, Object[] pkValues, long tsMicro, String md5Digest, byte[] digest, CFMetaData t, Object token) {
+        this(nodeId, segment, position, pkValues, tsMicro, md5Digest, digest, t, token, null, null, null);
     }
 
-    @Override
-    public String key() {
-        return metadata.ksName + "." + metadata.cfName;
+    public Mutation(UUID nodeId, Long segment, int position, Object[] pkValues, long tsMicro, String md5Digest, byte[] digest, CFMetaData t, Object token, byte[] columnBitmap, byte[] rowImage, MutationOperation operation) {
+        super(nodeId, segment, position, pkValues, tsMicro, md5Digest, digest, t, token, descriptor(t), columnBitmap, rowImage, operation);
     }
 
-    @Override
-    public String name() {
-        return metadata.cfName;
+    /**
+     * @return the descriptor of the table, built once per table schema
+     */
+    static TableDescriptor<CFMetaData> descriptor(CFMetaData t) {
+        return TableDescriptor.get(t.cfId, t, Schema.instance.getVersion(), Mutation::buildDescriptor);
     }
 
-    @Override
-    public String keyspace() {
-        return metadata.ksName;
-    }
-
-    @Override
-    public List<ColumnInfo> primaryKeyColumns() {
+    static TableDescriptor<CFMetaData> buildDescriptor(CFMetaData t) {
         List<ColumnInfo> columnInfos = new ArrayList<>();
-        for(ColumnDefinition cm :metadata.primaryKeyColumns())
+        for(ColumnDefinition cm : t.primaryKeyColumns()) {
+            final String name = cm.name.toString();
+            final String cql3Type = cm.type.asCQL3Type().toString();
+            final boolean isClusteringKey = cm.isClusteringColumn();
             columnInfos.add(new ColumnInfo() {
                 @Override
                 public String name() {
-                    return cm.name.toString();
+                    return name;
                 }
 
                 @Override
                 public String cql3Type() {
-                    return cm.type.asCQL3Type().toString();
+                    return cql3Type;
                 }
 
                 @Override
                 public boolean isClusteringKey() {
-                    return cm.isClusteringColumn();
+                    return isClusteringKey;
                 }
             });
-        return columnInfos;
+        }
+        List<String> columnNames = new ArrayList<>();
+        for(ColumnDefinition cm : t.partitionColumns()) {
+            columnNames.add(cm.name.toString());
+        }
+        return new TableDescriptor<>(t, t.ksName, t.cfName, columnInfos, columnNames);
     }
 }
@@ -15,6 +15,7 @@
  */
 package com.datastax.oss.cdc.agent;
 
+import com.datastax.oss.cdc.MutationOperation;
 import com.datastax.oss.cdc.agent.exceptions.CassandraConnectorTaskException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.cassandra.config.CFMetaData;
@@ -26,8 +27,8 @@ public class MutationMaker extends AbstractMutationMaker<CFMetaData, Mutation> {
 
     public void createRecord(UUID nodeId, long segment, int position,
                               long tsMicro, Object[] pkValues, BlockingConsumer<Mutation> consumer,
-                              String md5Digest, CFMetaData t, Object token) {
-        Mutation record = new Mutation(nodeId, segment, position, pkValues, tsMicro, md5Digest, t, token);
+                              String md5Digest, byte[] digest, CFMetaData t, Object token, byte[] columnBitmap, byte[] rowImage, MutationOperation operation) {
+        Mutation record = new Mutation(nodeId, segment, position, pkValues, tsMicro, md5Digest, digest, t, token, columnBitmap, rowImage, operation);
         try {
             consumer.accept(record);
         }
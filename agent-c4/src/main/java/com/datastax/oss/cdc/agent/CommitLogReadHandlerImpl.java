@@ -15,6 +15,7 @@
  */
 package com.datastax.oss.cdc.agent;
 
+import com.datastax.oss.cdc.RowImage;
 import com.datastax.oss.cdc.agent.exceptions.CassandraConnectorSchemaException;
 import com.datastax.oss.cdc.agent.exceptions.CassandraConnectorTaskException;
 import lombok.extern.slf4j.Slf4j;
@@ -25,18 +26,24 @@ import org.apache.cassandra.db.commitlog.CommitLogReadHandler;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.db.marshal.ValueAccessor;
 import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.rows.Cell;
+import org.apache.cassandra.db.rows.ColumnData;
 import org.apache.cassandra.db.rows.Row;
 import org.apache.cassandra.db.rows.Unfiltered;
 import org.apache.cassandra.db.rows.UnfilteredRowIterator;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.schema.ColumnMetadata;
 import org.apache.cassandra.schema.TableMetadata;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.MurmurHash;
 import org.apache.commons.codec.digest.DigestUtils;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 import static com.datastax.oss.cdc.agent.CommitLogReadHandlerImpl.RowType.DELETE;
@@ -54,12 +61,20 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
     private final AbstractMutationMaker<TableMetadata, Mutation> mutationMaker;
     private final MutationSender<TableMetadata> mutationSender;
     private final CommitLogReaderService.Task task;
+    private final boolean compactDigestEnabled;
+    private final Set<String> rowImageTables;
+    private final PrimaryReplicaFilter primaryReplicaFilter;
     private int processedPosition;
 
-    CommitLogReadHandlerImpl(MutationSender<TableMetadata> mutationSender,
+    CommitLogReadHandlerImpl(AgentConfig config,
+                             MutationSender<TableMetadata> mutationSender,
                              CommitLogReaderService.Task task,
-                             int currentPosition) {
+                             int currentPosition,
+                             PrimaryReplicaFilter primaryReplicaFilter) {
         this.mutationSender = mutationSender;
+        this.primaryReplicaFilter = primaryReplicaFilter;
+        this.compactDigestEnabled = config.compactDigestEnabled;
+        this.rowImageTables = config.rowImageTableSet();
         this.mutationMaker = new MutationMaker();
         this.task = task;
         this.processedPosition = currentPosition;
@@ -230,18 +245,71 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
             return;
         }
 
+        // mutations emitted by the primary replica are skipped, and replayed after the fallback delay if it stopped emitting them
+        final String keyspace = mutation.getKeyspaceName();
+        final Token token = mutation.key().getToken();
+        BlockingConsumer<Mutation> consumer = primaryReplicaFilter.shouldEmit(keyspace, token)
+                ? this::sendAsync
+                : skipped -> skipAsync(skipped, () -> primaryReplicaFilter.shouldEmit(keyspace, token));
+
+        // released once processed, the watermark never passes a failed entry
+        task.ackTracker.register(entryLocation);
+        String md5Digest = null;
+        byte[] digest = null;
+        try {
+            if (compactDigestEnabled) {
+                digest = murmur3Digest(mutation, descriptor.getMessagingVersion());
+            } else {
+                md5Digest = md5Digest(mutation, descriptor.getMessagingVersion());
+            }
+        }
+        catch (Exception e) {
+            throw new RuntimeException(String.format("Failed to digest Mutation at %d:%d for keyspace %s.",
+                    descriptor.id, entryLocation, mutation.getKeyspaceName()), e);
+        }
+
         for (PartitionUpdate pu : mutation.getPartitionUpdates()) {
             try {
-                DataOutputBuffer dataOutputBuffer = new DataOutputBuffer();
-                org.apache.cassandra.db.Mutation.serializer.serialize(mutation, dataOutputBuffer, descriptor.getMessagingVersion());
-                String md5Digest = DigestUtils.md5Hex(dataOutputBuffer.getData());
-                process(pu, descriptor.id, entryLocation, md5Digest);
+                process(pu, descriptor.id, entryLocation, md5Digest, digest, consumer);
             }
             catch (Exception e) {
                 throw new RuntimeException(String.format("Failed to process PartitionUpdate %s at %d:%d for table %s.%s.",
                         pu.toString(), descriptor.id, entryLocation, pu.metadata().keyspace, pu.metadata().name), e);
             }
         }
+        task.ackTracker.release(entryLocation);
+    }
+
+    /**
+     * Compute the MD5 digest of a commitlog entry.
+     * The digest is computed once per {@link org.apache.cassandra.db.Mutation} and shared by all its partition updates.
+     * It hashes the whole buffer of a new {@link DataOutputBuffer}, including its unused tail, to keep the digest
+     * of the previous agent versions: the connector deduplicates the mutations of old and new agents during
+     * a rolling upgrade.
+     */
+    static String md5Digest(org.apache.cassandra.db.Mutation mutation, int messagingVersion) throws IOException {
+        DataOutputBuffer dataOutputBuffer = new DataOutputBuffer();
+        org.apache.cassandra.db.Mutation.serializer.serialize(mutation, dataOutputBuffer, messagingVersion);
+        return DigestUtils.md5Hex(dataOutputBuffer.getData());
+    }
+
+    /**
+     * Compute the Murmur3 128-bit digest of a commitlog entry, serialized into the reader thread scratch buffer.
+     */
+    static byte[] murmur3Digest(org.apache.cassandra.db.Mutation mutation, int messagingVersion) throws IOException {
+        try (DataOutputBuffer dataOutputBuffer = DataOutputBuffer.scratchBuffer.get()) {
+            org.apache.cassandra.db.Mutation.serializer.serialize(mutation, dataOutputBuffer, messagingVersion);
+            return murmur3Digest(dataOutputBuffer.getData(), dataOutputBuffer.getLength());
+        }
+    }
+
+    /**
+     * Compute the 16 bytes Murmur3 128-bit digest of the first length bytes of the buffer.
+     */
+    static byte[] murmur3Digest(byte[] buffer, int length) {
+        long[] hash = new long[2];
+        MurmurHash.hash3_x64_128(ByteBuffer.wrap(buffer), 0, length, 0, hash);
+        return ByteBuffer.allocate(16).putLong(hash[0]).putLong(hash[1]).array();
     }
 
     @Override
@@ -266,7 +334,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
      * deletion or a row-level modification) or throw an exception if it isn't. The valid partition
      * update is then converted into a {@link AbstractMutation}.
      */
-    private void process(PartitionUpdate pu, long segment, int position, String md5Digest) {
+    private void process(PartitionUpdate pu, long segment, int position, String md5Digest, byte[] digest, BlockingConsumer<Mutation> consumer) {
         PartitionType partitionType = PartitionType.getPartitionType(pu);
 
         if (!PartitionType.isValid(partitionType)) {
@@ -277,7 +345,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         switch (partitionType) {
             case PARTITION_AND_CLUSTERING_KEY_ROW_DELETION:
             case PARTITION_KEY_ROW_DELETION: {
-                handlePartitionDeletion(pu, segment, position, md5Digest);
+                handlePartitionDeletion(pu, segment, position, md5Digest, digest, consumer);
             }
             break;
 
@@ -285,7 +353,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
                 UnfilteredRowIterator it = pu.unfilteredIterator();
                 Row row = it.staticRow();
                 RowType rowType = RowType.getRowType(row);
-                handleRowModifications(row, rowType, pu, segment, position, md5Digest);
+                handleRowModifications(row, rowType, pu, segment, position, md5Digest, digest, consumer);
             }
             break;
 
@@ -300,7 +368,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
                     }
                     Row row = (Row) rowOrRangeTombstone;
 
-                    handleRowModifications(row, rowType, pu, segment, position, md5Digest);
+                    handleRowModifications(row, rowType, pu, segment, position, md5Digest, digest, consumer);
                 }
             }
             break;
@@ -315,12 +383,12 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
      * of this event into a {@link AbstractMutation} object and send it to pulsar. A valid deletion
      * event means a partition only has a single row, this implies there are no clustering keys.
      */
-    private void handlePartitionDeletion(PartitionUpdate pu, long segment, int position, String md5Digest) {
+    private void handlePartitionDeletion(PartitionUpdate pu, long segment, int position, String md5Digest, byte[] digest, BlockingConsumer<Mutation> consumer) {
         try {
-            Object[] after = new Object[pu.metadata().partitionKeyColumns().size() + pu.metadata().clusteringColumns().size()];
+            Object[] after = newPkValues(pu);
             populatePartitionColumns(after, pu);
-            mutationMaker.delete(StorageService.instance.getLocalHostUUID(), segment, position,
-                    pu.maxTimestamp(), after, this::sendAsync, md5Digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue());
+            mutationMaker.partitionDelete(StorageService.instance.getLocalHostUUID(), segment, position,
+                    pu.maxTimestamp(), after, consumer, md5Digest, digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue());
         }
         catch (Exception e) {
             log.error("Fail to send delete partition at {}:{}. Reason: {}", segment, position, e);
@@ -333,26 +401,34 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
      * implies this must be an insert, update, or delete.
      */
     private void handleRowModifications(Row row, RowType rowType, PartitionUpdate pu,
-                                        long segment, int position, String md5Digest) {
-        Object[] after = new Object[pu.metadata().partitionKeyColumns().size() + pu.metadata().clusteringColumns().size()];
+                                        long segment, int position, String md5Digest, byte[] digest, BlockingConsumer<Mutation> consumer) {
+        Object[] after = newPkValues(pu);
         populatePartitionColumns(after, pu);
         populateClusteringColumns(after, row, pu);
 
         long ts = rowType == DELETE ? row.deletion().time().markedForDeleteAt() : pu.maxTimestamp();
+        byte[] columnBitmap = null;
+        byte[] rowImage = null;
+        if (rowType != DELETE) {
+            TableDescriptor<TableMetadata> descriptor = Mutation.descriptor(pu.metadata());
+            columnBitmap = columnBitmap(row, descriptor);
+            if (rowImageTables.contains(descriptor.key()))
+                rowImage = rowImage(row, descriptor);
+        }
         switch (rowType) {
             case INSERT:
                 mutationMaker.insert(StorageService.instance.getLocalHostUUID(), segment, position,
-                        ts, after, this::sendAsync, md5Digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue());
+                        ts, after, consumer, md5Digest, digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue(), columnBitmap, rowImage);
                 break;
 
             case UPDATE:
                 mutationMaker.update(StorageService.instance.getLocalHostUUID(), segment, position,
-                        ts, after, this::sendAsync, md5Digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue());
+                        ts, after, consumer, md5Digest, digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue(), columnBitmap, rowImage);
                 break;
 
             case DELETE:
                 mutationMaker.delete(StorageService.instance.getLocalHostUUID(), segment, position,
-                        ts, after, this::sendAsync, md5Digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue());
+                        ts, after, consumer, md5Digest, digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue());
                 break;
 
             default:
@@ -360,8 +436,37 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         }
     }
 
+    /**
+     * Encode the regular and static columns written in the row, so that the connector only reads these columns.
+     */
+    private static byte[] columnBitmap(Row row, TableDescriptor<TableMetadata> descriptor) {
+        BitSet columns = new BitSet();
+        for (ColumnMetadata cm : row.columns()) {
+            int index = descriptor.columnIndex(cm.name.toString());
+            if (index >= 0)
+                columns.set(index);
+        }
+        return descriptor.columnBitmap(columns);
+    }
+
+    /**
+     * Encode the cell values written in the row, or null if the row has counter or non-frozen collection columns.
+     */
+    private static byte[] rowImage(Row row, TableDescriptor<TableMetadata> descriptor) {
+        RowImage image = new RowImage(256);
+        for (ColumnData cd : row) {
+            ColumnMetadata cm = cd.column();
+            int index = descriptor.columnIndex(cm.name.toString());
+            if (index < 0 || cm.isComplex() || cm.isCounterColumn())
+                return null;
+            Cell<?> cell = (Cell<?>) cd;
+            image.add(index, cell.isTombstone() ? null : cell.buffer());
+        }
+        return image.toByteArray();
+    }
+
     private void populatePartitionColumns(Object[] after, PartitionUpdate pu) {
-        List<Object> partitionKeys = getPartitionKeys(pu);
+        List<Object> partitionKeys = getPartitionKeys(pu, after instanceof ByteBuffer[]);
         int i = 0;
         for (ColumnMetadata cd : pu.metadata().partitionKeyColumns()) {
             try {
@@ -380,7 +485,8 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         for (ColumnMetadata cd : pu.metadata().clusteringColumns().stream().limit(row.clustering().size()).collect(Collectors.toList())) {
             try {
                 ValueAccessor valueAccessor = row.clustering().accessor();
-                after[i++] = cd.type.compose(valueAccessor.toBuffer(row.clustering().get(cd.position())));
+                ByteBuffer bb = valueAccessor.toBuffer(row.clustering().get(cd.position()));
+                after[i++] = after instanceof ByteBuffer[] ? bb : cd.type.compose(bb);
             }
             catch (Exception e) {
                 throw new RuntimeException(String.format("Failed to populate Column %s with Type %s of Table %s in KeySpace %s.",
@@ -389,12 +495,21 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         }
     }
 
+    /**
+     * Allocate the primary key values of a PartitionUpdate, a {@link ByteBuffer} array when the primary key values
+     * are kept serialized to be AVRO encoded without deserialization.
+     */
+    private static Object[] newPkValues(PartitionUpdate pu) {
+        int size = pu.metadata().partitionKeyColumns().size() + pu.metadata().clusteringColumns().size();
+        return Mutation.descriptor(pu.metadata()).serializedPkValues() ? new ByteBuffer[size] : new Object[size];
+    }
+
     /**
      * Given a PartitionUpdate, deserialize the partition key byte buffer
-     * into a list of partition key values.
+     * into a list of partition key values, or split it into serialized values.
      */
     @SuppressWarnings("checkstyle:magicnumber")
-    private static List<Object> getPartitionKeys(PartitionUpdate pu) {
+    private static List<Object> getPartitionKeys(PartitionUpdate pu, boolean serialized) {
         List<Object> values = new ArrayList<>(pu.metadata().partitionKeyColumns().size());
         List<ColumnMetadata> columnDefinitions = pu.metadata().partitionKeyColumns();
 
@@ -404,7 +519,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
             ColumnSpecification cs = columnDefinitions.get(0);
             AbstractType<?> type = cs.type;
             try {
-                Object value = type.compose(bb);
+                Object value = serialized ? bb : type.compose(bb);
                 values.add(value);
             }
             catch (Exception e) {
@@ -436,7 +551,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
                 AbstractType<?> type = cs.type;
                 ByteBuffer bb = ByteBufferUtil.readBytesWithShortLength(keyBytes);
                 try {
-                    Object value = type.compose(bb);
+                    Object value = serialized ? bb : type.compose(bb);
                     values.add(value);
                 }
                 catch (Exception e) {
@@ -456,8 +571,26 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
 
     public void sendAsync(Mutation mutation) {
         log.debug("Sending mutation={}", mutation);
+        final int inflightSize = task.acquireInflight(mutation); // may block
+        if (send(mutation, inflightSize))
+            this.processedPosition = Math.max(this.processedPosition, mutation.getPosition());
+    }
+
+    /**
+     * Skip a mutation emitted by its primary replica, the mutation is replayed after the fallback delay if the local node should then emit it.
+     */
+    public void skipAsync(Mutation mutation, BooleanSupplier shouldEmit) {
+        log.debug("Skipping mutation={}", mutation);
+        task.skip(shouldEmit, () -> replay(mutation));
+        this.processedPosition = Math.max(this.processedPosition, mutation.getPosition());
+    }
+
+    /**
+     * Send a mutation holding its in-flight resources.
+     * @return false if the send failed
+     */
+    boolean send(Mutation mutation, int inflightSize) {
         try {
-            task.inflightMessagesSemaphore.acquireUninterruptibly(); // may block
             this.mutationSender.sendMutationAsync(mutation)
                     .handle((msgId, t)-> {
                         if (t == null) {
@@ -473,13 +606,36 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
                                 task.lastException = t;
                             }
                         }
-                        task.inflightMessagesSemaphore.release();
+                        task.releaseInflight(mutation, inflightSize, t == null || t instanceof CassandraConnectorSchemaException);
                         return msgId;
                     });
-            this.processedPosition = Math.max(this.processedPosition, mutation.getPosition());
+            return true;
         } catch(Exception e) {
             log.error("Send failed:", e);
+            task.releaseInflight(mutation, inflightSize, false);
+            CdcMetrics.sentErrors.inc();
+            return false;
+        }
+    }
+
+    /**
+     * Send a skipped mutation without in-flight resources, as its position may already be checkpointed.
+     */
+    void replay(Mutation mutation) {
+        log.debug("Replaying mutation={}", mutation);
+        try {
+            this.mutationSender.sendMutationAsync(mutation)
+                    .whenComplete((msgId, t) -> {
+                        if (t == null) {
+                            CdcMetrics.sentMutations.inc();
+                        } else {
+                            CdcMetrics.sentErrors.inc();
+                            log.warn("Failed to replay the skipped mutation=" + mutation, t);
+                        }
+                    });
+        } catch (Exception e) {
             CdcMetrics.sentErrors.inc();
+            log.warn("Failed to replay the skipped mutation=" + mutation, e);
         }
     }
 }
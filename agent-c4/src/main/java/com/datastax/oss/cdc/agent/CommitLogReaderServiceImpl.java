@@ -34,18 +34,26 @@ import java.util.function.IntBinaryOperator;
 @Slf4j
 public class CommitLogReaderServiceImpl extends CommitLogReaderService {
 
+    /**
+     * Skips the mutations emitted by the primary replica when primaryReplicaOnly is enabled.
+     */
+    final PrimaryReplicaFilter primaryReplicaFilter;
+
     public CommitLogReaderServiceImpl(AgentConfig config,
                                       MutationSender<TableMetadata> mutationSender,
                                       SegmentOffsetWriter segmentOffsetWriter,
                                       CommitLogTransfer commitLogTransfer) {
         super(config, mutationSender, segmentOffsetWriter, commitLogTransfer);
+        int processors = config.cdcConcurrentProcessors == -1 ? DatabaseDescriptor.getFlushWriters() : config.cdcConcurrentProcessors;
         this.tasksExecutor = new JMXEnabledThreadPoolExecutor(
-                config.cdcConcurrentProcessors == -1 ? DatabaseDescriptor.getFlushWriters() : config.cdcConcurrentProcessors,
-                config.cdcConcurrentProcessors == -1 ? DatabaseDescriptor.getFlushWriters() : config.cdcConcurrentProcessors,
+                processors,
+                processors,
                 1, TimeUnit.MINUTES,
                 new LinkedBlockingQueue<>(),
                 new NamedThreadFactory("CdcCommitlogProcessor"),
                 CdcMetrics.CDC_AGENT_MBEAN_NAME);
+        segmentScheduler.configure(tasksExecutor, processors, config.maxQueuedTasks);
+        this.primaryReplicaFilter = new PrimaryReplicaFilter(config, fallbackReplicaMutations);
     }
 
     @SuppressWarnings("unchecked")
@@ -67,7 +75,7 @@ public class CommitLogReaderServiceImpl extends CommitLogReaderService {
                     int currentPosition = segmentOffsetWriter.position(Optional.empty(), seg);
                     if (syncPosition >= currentPosition) {
                         CommitLogPosition minPosition = new CommitLogPosition(seg, currentPosition);
-                        CommitLogReadHandlerImpl commitLogReadHandler = new CommitLogReadHandlerImpl((MutationSender<TableMetadata>) mutationSender, this, currentPosition);
+                        CommitLogReadHandlerImpl commitLogReadHandler = new CommitLogReadHandlerImpl(config, (MutationSender<TableMetadata>) mutationSender, this, currentPosition, primaryReplicaFilter);
                         CommitLogReader commitLogReader = new CommitLogReader();
                         commitLogReader.readCommitLogSegment(commitLogReadHandler, file, minPosition, false);
                         lastSentPosition = commitLogReadHandler.getProcessedPosition();
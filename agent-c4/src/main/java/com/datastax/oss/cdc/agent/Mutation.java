@@ -15,7 +15,9 @@
  */
 package com.datastax.oss.cdc.agent;
 
+import com.datastax.oss.cdc.MutationOperation;
 import org.apache.cassandra.schema.ColumnMetadata;
+import org.apache.cassandra.schema.Schema;
 import org.apache.cassandra.schema.TableMetadata;
 
 import java.util.ArrayList;
@@ -24,45 +26,48 @@ import java.util.UUID;
 
 public class Mutation extends AbstractMutation<TableMetadata> {
 
-    public Mutation(UUID nodeId, Long segment, int position, Object[] pkValues, long tsMicro, String md5Digest, TableMetadata t, Object token) {
-        super(nodeId, segment, position, pkValues, tsMicro, md5Digest, t, token);
+    public Mutation(UUID nodeId, Long segment, int position, Object[] pkValues, long tsMicro, String md5Digest, byte[] digest, TableMetadata t, Object token) {
+        this(nodeId, segment, position, pkValues, tsMicro, md5Digest, digest, t, token, null, null, null);
     }
 
-    @Override
-    public String key() {
-        return metadata.keyspace + "." + metadata.name;
+    public Mutation(UUID nodeId, Long segment, int position, Object[] pkValues, long tsMicro, String md5Digest, byte[] digest, TableMetadata t, Object token, byte[] columnBitmap, byte[] rowImage, MutationOperation operation) {
+        super(nodeId, segment, position, pkValues, tsMicro, md5Digest, digest, t, token, descriptor(t), columnBitmap, rowImage, operation);
     }
 
-    @Override
-    public String name() {
-        return metadata.name;
+    /**
+     * @return the descriptor of the table, built once per table schema
+     */
+    static TableDescriptor<TableMetadata> descriptor(TableMetadata t) {
+        return TableDescriptor.get(t.id, t, Schema.instance.getVersion(), Mutation::buildDescriptor);
     }
 
-    @Override
-    public String keyspace() {
-        return metadata.keyspace;
-    }
-
-    @Override
-    public List<ColumnInfo> primaryKeyColumns() {
+    static TableDescriptor<TableMetadata> buildDescriptor(TableMetadata t) {
         List<ColumnInfo> columnInfos = new ArrayList<>();
-        for(ColumnMetadata cm :metadata.primaryKeyColumns())
+        for(ColumnMetadata cm : t.primaryKeyColumns()) {
+            final String name = cm.name.toString();
+            final String cql3Type = cm.type.asCQL3Type().toString();
+            final boolean isClusteringKey = cm.isClusteringColumn();
             columnInfos.add(new ColumnInfo() {
                 @Override
                 public String name() {
-                    return cm.name.toString();
+                    return name;
                 }
 
                 @Override
                 public String cql3Type() {
-                    return cm.type.asCQL3Type().toString();
+                    return cql3Type;
                 }
 
                 @Override
                 public boolean isClusteringKey() {
-                    return cm.isClusteringColumn();
+                    return isClusteringKey;
                 }
             });
-        return columnInfos;
+        }
+        List<String> columnNames = new ArrayList<>();
+        for(ColumnMetadata cm : t.regularAndStaticColumns()) {
+            columnNames.add(cm.name.toString());
+        }
+        return new TableDescriptor<>(t, t.keyspace, t.name, columnInfos, columnNames);
     }
 }
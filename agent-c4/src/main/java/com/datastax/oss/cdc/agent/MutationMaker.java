@@ -15,6 +15,7 @@
  */
 package com.datastax.oss.cdc.agent;
 
+import com.datastax.oss.cdc.MutationOperation;
 import com.datastax.oss.cdc.agent.exceptions.CassandraConnectorTaskException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.cassandra.schema.TableMetadata;
@@ -26,8 +27,8 @@ public class MutationMaker extends AbstractMutationMaker<TableMetadata, Mutation
 
     public void createRecord(UUID nodeId, long segment, int position,
                               long tsMicro, Object[] pkValues, BlockingConsumer<Mutation> consumer,
-                              String md5Digest, TableMetadata t, Object token) {
-        Mutation record = new Mutation(nodeId, segment, position, pkValues, tsMicro, md5Digest, t, token);
+                              String md5Digest, byte[] digest, TableMetadata t, Object token, byte[] columnBitmap, byte[] rowImage, MutationOperation operation) {
+        Mutation record = new Mutation(nodeId, segment, position, pkValues, tsMicro, md5Digest, digest, t, token, columnBitmap, rowImage, operation);
         try {
             consumer.accept(record);
         }
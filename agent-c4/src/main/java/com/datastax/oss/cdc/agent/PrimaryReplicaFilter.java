@@ -0,0 +1,65 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.gms.FailureDetector;
+import org.apache.cassandra.locator.IEndpointSnitch;
+import org.apache.cassandra.locator.InetAddressAndPort;
+import org.apache.cassandra.locator.Replica;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.FBUtilities;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Primary replica filter based on the local token metadata and failure detector.
+ */
+public class PrimaryReplicaFilter extends AbstractPrimaryReplicaFilter<InetAddressAndPort, Token> {
+
+    public PrimaryReplicaFilter(AgentConfig config, AtomicLong fallbackMutations) {
+        super(config, fallbackMutations);
+    }
+
+    @Override
+    protected InetAddressAndPort localEndpoint() {
+        return FBUtilities.getBroadcastAddressAndPort();
+    }
+
+    @Override
+    protected InetAddressAndPort primaryReplica(String keyspace, Token token) {
+        // natural replicas are ordered by walking the ring from the token
+        String localDc = DatabaseDescriptor.getLocalDataCenter();
+        IEndpointSnitch snitch = DatabaseDescriptor.getEndpointSnitch();
+        for (Replica replica : Keyspace.open(keyspace).getReplicationStrategy().getNaturalReplicasForToken(token)) {
+            if (localDc.equals(snitch.getDatacenter(replica.endpoint())))
+                return replica.endpoint();
+        }
+        return null;
+    }
+
+    @Override
+    protected boolean hasPendingReplicas(String keyspace, Token token) {
+        return !StorageService.instance.getTokenMetadata().pendingEndpointsFor(token, keyspace).isEmpty();
+    }
+
+    @Override
+    protected boolean isAlive(InetAddressAndPort endpoint) {
+        return FailureDetector.instance.isAlive(endpoint);
+    }
+}
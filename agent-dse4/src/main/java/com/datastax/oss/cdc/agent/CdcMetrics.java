@@ -35,20 +35,44 @@ public class CdcMetrics {
     public static final Counter executedTasks = Metrics.counter(factory.createMetricName("ExecutedTasks"));
 
     public static final Gauge<Integer> submittedTasksGauge = Metrics.register(factory.createMetricName("SubmittedTasks"),
-            CommitLogReaderService.submittedTasks::size);
+            CommitLogReaderService.segmentScheduler::runningTasks);
 
     public static final Gauge<Integer> maxSubmittedTasks = Metrics.register(factory.createMetricName("MaxSubmittedTasks"),
-            CommitLogReaderService.maxSubmittedTasks::get);
+            CommitLogReaderService.segmentScheduler.maxRunningTasksReached::get);
 
     public static final Gauge<Integer> pendingTasksGauge = Metrics.register(factory.createMetricName("PendingTasks"),
-            CommitLogReaderService.pendingTasks::size);
+            CommitLogReaderService.segmentScheduler::pendingTasks);
 
     public static final Gauge<Integer> maxPendingTasks = Metrics.register(factory.createMetricName("MaxPendingTasks"),
-            CommitLogReaderService.maxPendingTasks::get);
+            CommitLogReaderService.segmentScheduler.maxPendingTasksReached::get);
 
     public static final Gauge<Integer> uncleanedTasksGauge = Metrics.register(factory.createMetricName("UncleanedTasks"),
-            CommitLogReaderService.pendingTasks::size);
+            CommitLogReaderService.segmentScheduler::uncleanedTasks);
 
     public static final Gauge<Integer> maxUncleanedTasks = Metrics.register(factory.createMetricName("MaxUncleanedTasks"),
-            CommitLogReaderService.maxUncleanedTasks::get);
+            CommitLogReaderService.segmentScheduler.maxUncleanedTasksReached::get);
+
+    public static final Gauge<Long> coalescedTasks = Metrics.register(factory.createMetricName("CoalescedTasks"),
+            CommitLogReaderService.segmentScheduler::coalescedTasks);
+
+    public static final Gauge<Long> schedulerBlockedTimeMs = Metrics.register(factory.createMetricName("SchedulerBlockedTimeMs"),
+            CommitLogReaderService.segmentScheduler::blockedTimeMs);
+
+    public static final Gauge<Long> coalescedCommitLogEvents = Metrics.register(factory.createMetricName("CoalescedCommitLogEvents"),
+            CommitLogReaderService.coalescedCommitLogEvents::get);
+
+    public static final Gauge<Long> inflightBytes = Metrics.register(factory.createMetricName("InflightBytes"),
+            CommitLogReaderService.inflightBudget::bytesInFlight);
+
+    public static final Gauge<Long> inflightBlockedSends = Metrics.register(factory.createMetricName("InflightBlockedSends"),
+            CommitLogReaderService.inflightBudget::blockedAcquisitions);
+
+    public static final Gauge<Long> inflightBlockedTimeMs = Metrics.register(factory.createMetricName("InflightBlockedTimeMs"),
+            CommitLogReaderService.inflightBudget::blockedTimeMs);
+
+    public static final Gauge<Long> skippedReplicaMutations = Metrics.register(factory.createMetricName("SkippedReplicaMutations"),
+            CommitLogReaderService.skippedReplicaMutations::get);
+
+    public static final Gauge<Long> fallbackReplicaMutations = Metrics.register(factory.createMetricName("FallbackReplicaMutations"),
+            CommitLogReaderService.fallbackReplicaMutations::get);
 }
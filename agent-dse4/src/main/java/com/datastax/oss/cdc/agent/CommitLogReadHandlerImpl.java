@@ -15,6 +15,7 @@
  */
 package com.datastax.oss.cdc.agent;
 
+import com.datastax.oss.cdc.RowImage;
 import com.datastax.oss.cdc.agent.exceptions.CassandraConnectorSchemaException;
 import com.datastax.oss.cdc.agent.exceptions.CassandraConnectorTaskException;
 import lombok.extern.slf4j.Slf4j;
@@ -24,18 +25,25 @@ import org.apache.cassandra.db.commitlog.CommitLogDescriptor;
 import org.apache.cassandra.db.commitlog.CommitLogReadHandler;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.db.partitions.PartitionUpdate;
+import org.apache.cassandra.db.rows.Cell;
+import org.apache.cassandra.db.rows.ColumnData;
 import org.apache.cassandra.db.rows.Row;
 import org.apache.cassandra.db.rows.Unfiltered;
 import org.apache.cassandra.db.rows.UnfilteredRowIterator;
-import org.apache.cassandra.io.util.DataInputBuffer;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.schema.ColumnMetadata;
 import org.apache.cassandra.schema.TableMetadata;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.MurmurHash;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 
 import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 import static com.datastax.oss.cdc.agent.CommitLogReadHandlerImpl.RowType.DELETE;
@@ -52,10 +60,26 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
 
     private final AbstractMutationMaker<TableMetadata, Mutation> mutationMaker;
     private final BlockingConsumer<Mutation> blockingConsumer;
+    private final BiConsumer<Mutation, BooleanSupplier> skippingConsumer;
+    private final boolean compactDigestEnabled;
+    private final Set<String> rowImageTables;
+    private final SegmentAckTracker ackTracker;
+    private final PrimaryReplicaFilter primaryReplicaFilter;
 
-    public CommitLogReadHandlerImpl(BlockingConsumer<Mutation> blockingConsumer) {
+    /**
+     * @param skippingConsumer skips the mutations emitted by their primary replica, replayed if the local node should then emit them.
+     * @param ackTracker tracks the processed commitlog entries, their sent mutations being tracked by the consumer.
+     * @param primaryReplicaFilter skips the mutations emitted by their primary replica.
+     */
+    public CommitLogReadHandlerImpl(AgentConfig config, BlockingConsumer<Mutation> blockingConsumer, BiConsumer<Mutation, BooleanSupplier> skippingConsumer,
+                                    SegmentAckTracker ackTracker, PrimaryReplicaFilter primaryReplicaFilter) {
         this.mutationMaker = new MutationMaker();
         this.blockingConsumer = blockingConsumer;
+        this.skippingConsumer = skippingConsumer;
+        this.compactDigestEnabled = config.compactDigestEnabled;
+        this.rowImageTables = config.rowImageTableSet();
+        this.ackTracker = ackTracker;
+        this.primaryReplicaFilter = primaryReplicaFilter;
     }
 
     /**
@@ -224,16 +248,51 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
             return;
         }
 
+        // mutations emitted by the primary replica are skipped, and replayed after the fallback delay if it stopped emitting them
+        final String keyspace = mutation.getKeyspaceName();
+        final Token token = mutation.key().getToken();
+        BlockingConsumer<Mutation> consumer = primaryReplicaFilter.shouldEmit(keyspace, token)
+                ? blockingConsumer
+                : skipped -> skippingConsumer.accept(skipped, () -> primaryReplicaFilter.shouldEmit(keyspace, token));
+
+        // released once processed, the watermark never passes a failed entry
+        ackTracker.register(entryLocation);
+        String md5Digest = compactDigestEnabled ? null : md5Digest(inputBuffer, size);
+        byte[] digest = compactDigestEnabled ? murmur3Digest(inputBuffer, size) : null;
         for (PartitionUpdate pu : mutation.getPartitionUpdates()) {
             try {
-                String md5Digest = DigestUtils.md5Hex(new DataInputBuffer(inputBuffer, 0, size));
-                process(pu, descriptor.id, entryLocation, md5Digest);
+                process(pu, descriptor.id, entryLocation, md5Digest, digest, consumer);
             }
             catch (Exception e) {
                 throw new RuntimeException(String.format("Failed to process PartitionUpdate %s at %d:%d for table %s.%s.",
                         pu.toString(), descriptor.id, entryLocation, pu.metadata().keyspace, pu.metadata().name), e);
             }
         }
+        ackTracker.release(entryLocation);
+    }
+
+    /**
+     * Per reader thread MD5 digest, reused across the commitlog entries.
+     */
+    private static final ThreadLocal<MessageDigest> md5Digests = ThreadLocal.withInitial(DigestUtils::getMd5Digest);
+
+    /**
+     * Compute the MD5 digest of a commitlog entry straight from the raw entry bytes held by the reader.
+     * The digest is computed once per {@link org.apache.cassandra.db.Mutation} and shared by all its partition updates.
+     */
+    static String md5Digest(byte[] inputBuffer, int size) {
+        MessageDigest md5Digest = md5Digests.get();
+        md5Digest.update(inputBuffer, 0, size);
+        return Hex.encodeHexString(md5Digest.digest());
+    }
+
+    /**
+     * Compute the 16 bytes Murmur3 128-bit digest of the first length bytes of the buffer.
+     */
+    static byte[] murmur3Digest(byte[] buffer, int length) {
+        long[] hash = new long[2];
+        MurmurHash.hash3_x64_128(ByteBuffer.wrap(buffer), 0, length, 0, hash);
+        return ByteBuffer.allocate(16).putLong(hash[0]).putLong(hash[1]).array();
     }
 
     @Override
@@ -258,7 +317,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
      * deletion or a row-level modification) or throw an exception if it isn't. The valid partition
      * update is then converted into a {@link AbstractMutation}.
      */
-    private void process(PartitionUpdate pu, long segment, int position, String md5Digest) {
+    private void process(PartitionUpdate pu, long segment, int position, String md5Digest, byte[] digest, BlockingConsumer<Mutation> consumer) {
         PartitionType partitionType = PartitionType.getPartitionType(pu);
 
         if (!PartitionType.isValid(partitionType)) {
@@ -269,7 +328,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         switch (partitionType) {
             case PARTITION_AND_CLUSTERING_KEY_ROW_DELETION:
             case PARTITION_KEY_ROW_DELETION: {
-                handlePartitionDeletion(pu, segment, position, md5Digest);
+                handlePartitionDeletion(pu, segment, position, md5Digest, digest, consumer);
             }
             break;
 
@@ -277,7 +336,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
                 UnfilteredRowIterator it = pu.unfilteredIterator();
                 Row row = it.staticRow();
                 RowType rowType = RowType.getRowType(row);
-                handleRowModifications(row, rowType, pu, segment, position, md5Digest);
+                handleRowModifications(row, rowType, pu, segment, position, md5Digest, digest, consumer);
             }
             break;
 
@@ -291,7 +350,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
                         continue;
                     }
                     Row row = (Row) rowOrRangeTombstone;
-                    handleRowModifications(row, rowType, pu, segment, position, md5Digest);
+                    handleRowModifications(row, rowType, pu, segment, position, md5Digest, digest, consumer);
                 }
             }
             break;
@@ -313,12 +372,12 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
      * of this event into a {@link AbstractMutation} object and send it to pulsar. A valid deletion
      * event means a partition only has a single row, this implies there are no clustering keys.
      */
-    private void handlePartitionDeletion(PartitionUpdate pu, long segment, int position, String md5Digest) {
+    private void handlePartitionDeletion(PartitionUpdate pu, long segment, int position, String md5Digest, byte[] digest, BlockingConsumer<Mutation> consumer) {
         try {
-            Object[] after = new Object[pu.metadata().partitionKeyColumns().size() + pu.metadata().clusteringColumns().size()];
+            Object[] after = newPkValues(pu);
             populatePartitionColumns(after, pu);
-            mutationMaker.delete(getHostId(), segment, position,
-                    pu.maxTimestamp(), after, blockingConsumer, md5Digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue());
+            mutationMaker.partitionDelete(getHostId(), segment, position,
+                    pu.maxTimestamp(), after, consumer, md5Digest, digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue());
         }
         catch (Exception e) {
             log.error("Fail to send delete partition at {}:{}. Reason: {}", segment, position, e);
@@ -330,26 +389,34 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
      * this event into a {@link AbstractMutation} object and sent it to pulsar. A valid event
      * implies this must be an insert, update, or delete.
      */
-    private void handleRowModifications(Row row, RowType rowType, PartitionUpdate pu, long segment, int position, String md5Digest) {
-        Object[] after = new Object[pu.metadata().partitionKeyColumns().size() + pu.metadata().clusteringColumns().size()];
+    private void handleRowModifications(Row row, RowType rowType, PartitionUpdate pu, long segment, int position, String md5Digest, byte[] digest, BlockingConsumer<Mutation> consumer) {
+        Object[] after = newPkValues(pu);
         populatePartitionColumns(after, pu);
         populateClusteringColumns(after, row, pu);
 
         long ts = rowType == DELETE ? row.deletion().time().markedForDeleteAt() : pu.maxTimestamp();
+        byte[] columnBitmap = null;
+        byte[] rowImage = null;
+        if (rowType != DELETE) {
+            TableDescriptor<TableMetadata> descriptor = Mutation.descriptor(pu.metadata());
+            columnBitmap = columnBitmap(row, descriptor);
+            if (rowImageTables.contains(descriptor.key()))
+                rowImage = rowImage(row, descriptor);
+        }
         switch (rowType) {
             case INSERT:
                 mutationMaker.insert(getHostId(), segment, position,
-                        ts, after, blockingConsumer, md5Digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue());
+                        ts, after, consumer, md5Digest, digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue(), columnBitmap, rowImage);
                 break;
 
             case UPDATE:
                 mutationMaker.update(getHostId(), segment, position,
-                        ts, after, blockingConsumer, md5Digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue());
+                        ts, after, consumer, md5Digest, digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue(), columnBitmap, rowImage);
                 break;
 
             case DELETE:
                 mutationMaker.delete(getHostId(), segment, position,
-                        ts, after, blockingConsumer, md5Digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue());
+                        ts, after, consumer, md5Digest, digest, pu.metadata(), pu.partitionKey().getToken().getTokenValue());
                 break;
 
             default:
@@ -357,8 +424,37 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         }
     }
 
+    /**
+     * Encode the regular and static columns written in the row, so that the connector only reads these columns.
+     */
+    private static byte[] columnBitmap(Row row, TableDescriptor<TableMetadata> descriptor) {
+        BitSet columns = new BitSet();
+        for (ColumnMetadata cm : row.columns()) {
+            int index = descriptor.columnIndex(cm.name.toString());
+            if (index >= 0)
+                columns.set(index);
+        }
+        return descriptor.columnBitmap(columns);
+    }
+
+    /**
+     * Encode the cell values written in the row, or null if the row has counter or non-frozen collection columns.
+     */
+    private static byte[] rowImage(Row row, TableDescriptor<TableMetadata> descriptor) {
+        RowImage image = new RowImage(256);
+        for (ColumnData cd : row) {
+            ColumnMetadata cm = cd.column();
+            int index = descriptor.columnIndex(cm.name.toString());
+            if (index < 0 || cm.isComplex() || cm.isCounterColumn())
+                return null;
+            Cell cell = (Cell) cd;
+            image.add(index, cell.isTombstone() ? null : cell.value());
+        }
+        return image.toByteArray();
+    }
+
     private void populatePartitionColumns(Object[] after, PartitionUpdate pu) {
-        List<Object> partitionKeys = getPartitionKeys(pu);
+        List<Object> partitionKeys = getPartitionKeys(pu, after instanceof ByteBuffer[]);
         int i = 0;
         for (ColumnMetadata cd : pu.metadata().partitionKeyColumns()) {
             try {
@@ -376,7 +472,8 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         int i = pu.metadata().partitionKeyColumns().size();
         for (ColumnMetadata cd : pu.metadata().clusteringColumns().stream().limit(row.clustering().size()).collect(Collectors.toList())) {
             try {
-                after[i++] = cd.type.compose(row.clustering().get(cd.position()));
+                ByteBuffer bb = row.clustering().get(cd.position());
+                after[i++] = after instanceof ByteBuffer[] ? bb : cd.type.compose(bb);
             }
             catch (Exception e) {
                 throw new RuntimeException(String.format("Failed to populate Column %s with Type %s of Table %s in KeySpace %s.",
@@ -385,12 +482,21 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
         }
     }
 
+    /**
+     * Allocate the primary key values of a PartitionUpdate, a {@link ByteBuffer} array when the primary key values
+     * are kept serialized to be AVRO encoded without deserialization.
+     */
+    private static Object[] newPkValues(PartitionUpdate pu) {
+        int size = pu.metadata().partitionKeyColumns().size() + pu.metadata().clusteringColumns().size();
+        return Mutation.descriptor(pu.metadata()).serializedPkValues() ? new ByteBuffer[size] : new Object[size];
+    }
+
     /**
      * Given a PartitionUpdate, deserialize the partition key byte buffer
-     * into a list of partition key values.
+     * into a list of partition key values, or split it into serialized values.
      */
     @SuppressWarnings("checkstyle:magicnumber")
-    private static List<Object> getPartitionKeys(PartitionUpdate pu) {
+    private static List<Object> getPartitionKeys(PartitionUpdate pu, boolean serialized) {
         List<Object> values = new ArrayList<>();
         List<ColumnMetadata> columnDefinitions = pu.metadata().partitionKeyColumns();
 
@@ -400,7 +506,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
             ColumnSpecification cs = columnDefinitions.get(0);
             AbstractType<?> type = cs.type;
             try {
-                Object value = type.compose(bb);
+                Object value = serialized ? bb : type.compose(bb);
                 values.add(value);
             }
             catch (Exception e) {
@@ -432,7 +538,7 @@ public class CommitLogReadHandlerImpl implements CommitLogReadHandler {
                 AbstractType<?> type = cs.type;
                 ByteBuffer bb = ByteBufferUtil.readBytesWithShortLength(keyBytes);
                 try {
-                    Object value = type.compose(bb);
+                    Object value = serialized ? bb : type.compose(bb);
                     values.add(value);
                 }
                 catch (Exception e) {
@@ -27,6 +27,7 @@ import org.apache.cassandra.schema.TableMetadata;
 import java.io.File;
 import java.util.Optional;
 import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
 
 /**
  * Consume a queue of commitlog files to read mutations.
@@ -34,17 +35,25 @@ import java.util.concurrent.*;
 @Slf4j
 public class CommitLogReaderServiceImpl extends CommitLogReaderService {
 
+    /**
+     * Skips the mutations emitted by the primary replica when primaryReplicaOnly is enabled.
+     */
+    final PrimaryReplicaFilter primaryReplicaFilter;
+
     public CommitLogReaderServiceImpl(AgentConfig config,
                                       MutationSender<TableMetadata> mutationSender,
                                       SegmentOffsetWriter segmentOffsetWriter,
                                       CommitLogTransfer commitLogTransfer) {
         super(config, mutationSender, segmentOffsetWriter, commitLogTransfer);
+        int processors = config.cdcConcurrentProcessors == -1 ? DatabaseDescriptor.getFlushWriters() : config.cdcConcurrentProcessors;
         this.tasksExecutor = JMXEnabledThreadPoolExecutor.createAndPrestart(
-                config.cdcConcurrentProcessors == -1 ? DatabaseDescriptor.getFlushWriters() : config.cdcConcurrentProcessors,
+                processors,
                 1, TimeUnit.MINUTES,
                 new LinkedBlockingQueue<>(),
                 new NamedThreadFactory("CdcCommitlogProcessor"),
                 "internal");
+        segmentScheduler.configure(tasksExecutor, processors, config.maxQueuedTasks);
+        this.primaryReplicaFilter = new PrimaryReplicaFilter(config, fallbackReplicaMutations);
     }
 
     @SuppressWarnings("unchecked")
@@ -65,7 +74,7 @@ public class CommitLogReaderServiceImpl extends CommitLogReaderService {
                     long seg = CommitLogUtil.extractTimestamp(file.getName());
                     int currentPosition = segmentOffsetWriter.position(Optional.empty(), seg);
                     if (syncPosition > currentPosition) {
-                        commitLogReadHandlerImpl = new CommitLogReadHandlerImpl(this::sendAsync);
+                        commitLogReadHandlerImpl = new CommitLogReadHandlerImpl(config, this::sendAsync, this::skipAsync, ackTracker, primaryReplicaFilter);
                         CommitLogPosition minPosition = new CommitLogPosition(seg, currentPosition);
                         CommitLogReader commitLogReader = new CommitLogReader();
                         commitLogReader.readCommitLogSegment(commitLogReadHandlerImpl, file, minPosition, false);
@@ -86,8 +95,47 @@ public class CommitLogReaderServiceImpl extends CommitLogReaderService {
 
             public CompletableFuture<?> sendAsync(AbstractMutation<TableMetadata> mutation) {
                 log.debug("Sending mutation={}", mutation);
+                CompletableFuture<?> future = send(mutation, acquireInflight(mutation)); // may block
+                if (!future.isCompletedExceptionally())
+                    maxPosition = Math.max(maxPosition, mutation.getPosition());
+                return future;
+            }
+
+            /**
+             * Skip a mutation emitted by its primary replica, the mutation is replayed after the fallback delay if the local node should then emit it.
+             */
+            public void skipAsync(AbstractMutation<TableMetadata> mutation, BooleanSupplier shouldEmit) {
+                log.debug("Skipping mutation={}", mutation);
+                skip(shouldEmit, () -> replay(mutation));
+                maxPosition = Math.max(maxPosition, mutation.getPosition());
+            }
+
+            /**
+             * Send a skipped mutation without in-flight resources, as its position may already be checkpointed.
+             */
+            void replay(AbstractMutation<TableMetadata> mutation) {
+                log.debug("Replaying mutation={}", mutation);
+                try {
+                    ((MutationSender<TableMetadata>) mutationSender).sendMutationAsync(mutation)
+                            .whenComplete((msgId, t) -> {
+                                if (t == null) {
+                                    CdcMetrics.sentMutations.inc();
+                                } else {
+                                    CdcMetrics.sentErrors.inc();
+                                    log.warn("Failed to replay the skipped mutation=" + mutation, t);
+                                }
+                            });
+                } catch (Exception e) {
+                    CdcMetrics.sentErrors.inc();
+                    log.warn("Failed to replay the skipped mutation=" + mutation, e);
+                }
+            }
+
+            /**
+             * Send a mutation holding its in-flight resources.
+             */
+            CompletableFuture<?> send(AbstractMutation<TableMetadata> mutation, int inflightSize) {
                 try {
-                    inflightMessagesSemaphore.acquireUninterruptibly(); // may block
                     CompletableFuture<?> future = ((MutationSender<TableMetadata>) mutationSender).sendMutationAsync(mutation)
                             .handle((msgId, t)-> {
                                 if (t == null) {
@@ -103,13 +151,13 @@ public class CommitLogReaderServiceImpl extends CommitLogReaderService {
                                         lastException = t;
                                     }
                                 }
-                                inflightMessagesSemaphore.release();
+                                releaseInflight(mutation, inflightSize, t == null || t instanceof CassandraConnectorSchemaException);
                                 return msgId;
                             });
-                    maxPosition = Math.max(maxPosition, mutation.getPosition());
                     return future;
                 } catch(Exception e) {
                     log.error("Send failed:", e);
+                    releaseInflight(mutation, inflightSize, false);
                     CdcMetrics.sentErrors.inc();
                     CompletableFuture<?> future = new CompletableFuture<>();
                     future.completeExceptionally(e);
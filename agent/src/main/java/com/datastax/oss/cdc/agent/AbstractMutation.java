@@ -15,9 +15,11 @@
  */
 package com.datastax.oss.cdc.agent;
 
+import com.datastax.oss.cdc.MutationOperation;
 import com.datastax.oss.cdc.MutationValue;
 import lombok.*;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.UUID;
 
@@ -30,21 +32,106 @@ import java.util.UUID;
 @ToString
 @EqualsAndHashCode
 public abstract class AbstractMutation<T> implements TableInfo {
+    /**
+     * Estimated fixed heap cost of an in-flight mutation: the mutation itself,
+     * the {@link MutationValue} and the Pulsar message holding the encoded key.
+     */
+    static final int INFLIGHT_OVERHEAD = 256;
+
     private UUID nodeId;
     private long segment;
     private int position;
     private Object[] pkValues;
     private long ts;
     private String md5Digest;
+    private byte[] digest;
     protected T metadata;
     private Object token;
+    protected TableDescriptor<T> descriptor;
+
+    /**
+     * Optional regular and static columns written by the mutation, see {@link com.datastax.oss.cdc.ColumnBitmap}.
+     */
+    private byte[] columnBitmap;
+
+    /**
+     * Optional cell values written by the mutation, see {@link com.datastax.oss.cdc.RowImage}.
+     */
+    private byte[] rowImage;
 
-    public abstract String key();
-    public abstract String name();
-    public abstract String keyspace();
-    public abstract List<ColumnInfo> primaryKeyColumns();
+    /**
+     * The mutation operation, so that the connector does not read deleted rows.
+     */
+    private MutationOperation operation;
+
+    /**
+     * Primary key values are either deserialized Java objects, or the serialized Cassandra values
+     * when the table primary key supports a direct AVRO encoding (see {@link TableDescriptor#serializedPkValues}).
+     * @return true if the primary key values are serialized Cassandra values.
+     */
+    public boolean hasSerializedPkValues() {
+        return pkValues instanceof ByteBuffer[];
+    }
+
+    /**
+     * Rough estimate of the heap held by this mutation until the Pulsar send is acknowledged.
+     * @return the estimated size in bytes.
+     */
+    public int estimatedSize() {
+        int size = INFLIGHT_OVERHEAD;
+        if (pkValues != null) {
+            for (Object value : pkValues) {
+                size += estimatedSize(value);
+            }
+        }
+        if (md5Digest != null) {
+            size += 2 * md5Digest.length();
+        }
+        if (digest != null) {
+            size += digest.length;
+        }
+        if (columnBitmap != null) {
+            size += columnBitmap.length;
+        }
+        if (rowImage != null) {
+            size += rowImage.length;
+        }
+        return size;
+    }
+
+    static int estimatedSize(Object value) {
+        if (value == null)
+            return 0;
+        if (value instanceof ByteBuffer)
+            return ((ByteBuffer) value).remaining();
+        if (value instanceof String)
+            return 2 * ((String) value).length();
+        if (value instanceof byte[])
+            return ((byte[]) value).length;
+        return 16;
+    }
+
+    @Override
+    public String key() {
+        return descriptor.key();
+    }
+
+    @Override
+    public String name() {
+        return descriptor.name();
+    }
+
+    @Override
+    public String keyspace() {
+        return descriptor.keyspace();
+    }
+
+    @Override
+    public List<ColumnInfo> primaryKeyColumns() {
+        return descriptor.primaryKeyColumns();
+    }
 
     public MutationValue mutationValue() {
-        return new MutationValue(md5Digest, nodeId, null);
+        return new MutationValue(md5Digest, nodeId, null, digest, columnBitmap, rowImage, operation);
     }
 }
@@ -15,6 +15,7 @@
  */
 package com.datastax.oss.cdc.agent;
 
+import com.datastax.oss.cdc.MutationOperation;
 import lombok.NoArgsConstructor;
 
 import java.util.UUID;
@@ -24,23 +25,29 @@ public abstract class AbstractMutationMaker<T, M> {
 
     public void insert(UUID node, long segment, int position,
                        long tsMicro, Object[] pkValues, BlockingConsumer<M> consumer,
-                       String md5Digest, T t, Object token) {
-        createRecord(node, segment, position, tsMicro, pkValues, consumer, md5Digest, t, token);
+                       String md5Digest, byte[] digest, T t, Object token, byte[] columnBitmap, byte[] rowImage) {
+        createRecord(node, segment, position, tsMicro, pkValues, consumer, md5Digest, digest, t, token, columnBitmap, rowImage, MutationOperation.INSERT);
     }
 
     public void update(UUID node, long segment, int position,
                        long tsMicro, Object[] pkValues, BlockingConsumer<M> consumer,
-                       String md5Digest, T t, Object token) {
-        createRecord(node, segment, position, tsMicro, pkValues, consumer, md5Digest, t, token);
+                       String md5Digest, byte[] digest, T t, Object token, byte[] columnBitmap, byte[] rowImage) {
+        createRecord(node, segment, position, tsMicro, pkValues, consumer, md5Digest, digest, t, token, columnBitmap, rowImage, MutationOperation.UPDATE);
     }
 
     public void delete(UUID node, long segment, int position,
                        long tsMicro, Object[] pkValues, BlockingConsumer<M> consumer,
-                       String md5Digest, T t, Object token) {
-        createRecord(node, segment, position, tsMicro, pkValues, consumer, md5Digest, t, token);
+                       String md5Digest, byte[] digest, T t, Object token) {
+        createRecord(node, segment, position, tsMicro, pkValues, consumer, md5Digest, digest, t, token, null, null, MutationOperation.DELETE);
+    }
+
+    public void partitionDelete(UUID node, long segment, int position,
+                       long tsMicro, Object[] pkValues, BlockingConsumer<M> consumer,
+                       String md5Digest, byte[] digest, T t, Object token) {
+        createRecord(node, segment, position, tsMicro, pkValues, consumer, md5Digest, digest, t, token, null, null, MutationOperation.PARTITION_DELETE);
     }
 
     public abstract void createRecord(UUID nodeId, long segment, int position,
                               long tsMicro, Object[] pkValues, BlockingConsumer<M> consumer,
-                              String md5Digest, T t, Object token);
+                              String md5Digest, byte[] digest, T t, Object token, byte[] columnBitmap, byte[] rowImage, MutationOperation operation);
 }
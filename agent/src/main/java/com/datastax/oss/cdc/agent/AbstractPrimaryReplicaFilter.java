@@ -0,0 +1,90 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decide if the local node emits the mutations of a partition token when only the primary replica should emit them.
+ *
+ * The primary replica of a token is its first natural replica in the local datacenter, so that each datacenter
+ * emits the mutation once. The other replicas emit the mutation when:
+ * <ul>
+ *     <li>the failure detector considers the primary replica down.</li>
+ *     <li>the token has pending replicas (bootstrap, decommission, move), as the primary replica may change.</li>
+ * </ul>
+ * Otherwise, they record the mutation in the {@link SkippedMutationLog}, and emit it after the fallback delay
+ * if one of these conditions became true in the meantime.
+ * Duplicated mutations emitted during these transitions are removed by the connector deduplication.
+ *
+ * @param <E> the platform specific endpoint type
+ * @param <T> the platform specific token type
+ */
+public abstract class AbstractPrimaryReplicaFilter<E, T> {
+
+    final boolean enabled;
+    final AtomicLong fallbackMutations;
+
+    public AbstractPrimaryReplicaFilter(AgentConfig config, AtomicLong fallbackMutations) {
+        this.enabled = config.primaryReplicaOnly;
+        this.fallbackMutations = fallbackMutations;
+    }
+
+    /**
+     * @param keyspace the keyspace name
+     * @param token the partition token
+     * @return true if the local node should emit the mutations of the partition, false if the primary replica emits them.
+     */
+    public boolean shouldEmit(String keyspace, T token) {
+        if (!enabled)
+            return true;
+
+        E primary = primaryReplica(keyspace, token);
+        if (primary == null || primary.equals(localEndpoint()))
+            return true;
+
+        if (hasPendingReplicas(keyspace, token) || !isAlive(primary)) {
+            fallbackMutations.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the local node endpoint
+     */
+    protected abstract E localEndpoint();
+
+    /**
+     * @param keyspace the keyspace name
+     * @param token the partition token
+     * @return the first natural replica of the token in the local datacenter, or null if none
+     */
+    protected abstract E primaryReplica(String keyspace, T token);
+
+    /**
+     * @param keyspace the keyspace name
+     * @param token the partition token
+     * @return true if the token range is being moved to other replicas
+     */
+    protected abstract boolean hasPendingReplicas(String keyspace, T token);
+
+    /**
+     * @param endpoint the replica endpoint
+     * @return true if the failure detector considers the endpoint alive
+     */
+    protected abstract boolean isAlive(E endpoint);
+}
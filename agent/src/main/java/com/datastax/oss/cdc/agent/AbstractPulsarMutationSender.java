@@ -17,7 +17,6 @@ package com.datastax.oss.cdc.agent;
 
 import com.datastax.oss.cdc.CqlLogicalTypes;
 import com.datastax.oss.cdc.MutationValue;
-import com.datastax.oss.cdc.agent.exceptions.CassandraConnectorSchemaException;
 import com.datastax.oss.cdc.NativeSchemaWrapper;
 import com.datastax.oss.cdc.Murmur3MessageRouter;
 import com.datastax.oss.cdc.Constants;
@@ -28,8 +27,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.Conversions;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.io.BinaryEncoder;
-import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.specific.SpecificData;
 import org.apache.avro.specific.SpecificDatumWriter;
 import org.apache.pulsar.client.api.*;
@@ -37,9 +34,8 @@ import org.apache.pulsar.common.schema.KeyValue;
 import org.apache.pulsar.common.schema.KeyValueEncodingType;
 import org.apache.pulsar.common.schema.SchemaType;
 
-import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -63,6 +59,13 @@ public abstract class AbstractPulsarMutationSender<T> implements MutationSender<
     public static class SchemaAndWriter {
         public final org.apache.avro.Schema schema;
         public final SpecificDatumWriter<GenericRecord> writer;
+        @ToString.Exclude
+        @EqualsAndHashCode.Exclude
+        public final AvroKeyEncoder encoder;
+
+        public SchemaAndWriter(org.apache.avro.Schema schema, SpecificDatumWriter<GenericRecord> writer) {
+            this(schema, writer, new AvroKeyEncoder(schema));
+        }
     }
 
     volatile PulsarClient client;
@@ -124,37 +127,27 @@ public abstract class AbstractPulsarMutationSender<T> implements MutationSender<
         }
     }
 
-    public byte[] serializeAvroGenericRecord(org.apache.avro.generic.GenericRecord genericRecord, SpecificDatumWriter<org.apache.avro.generic.GenericRecord> datumWriter) {
-        try {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            BinaryEncoder binaryEncoder = new EncoderFactory().binaryEncoder(byteArrayOutputStream, null);
-            datumWriter.write(genericRecord, binaryEncoder);
-            binaryEncoder.flush();
-            return byteArrayOutputStream.toByteArray();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     /**
      * Build the AVRO schema for the primary key.
      * @param tableInfo
      * @return avroSchema of the table primary key
      */
     public SchemaAndWriter getAvroKeySchema(final TableInfo tableInfo) {
-        return pkSchemas.computeIfAbsent(tableInfo.key(), k -> {
-            List<Schema.Field> fields = new ArrayList<>();
-            for (ColumnInfo cm : tableInfo.primaryKeyColumns()) {
-                org.apache.avro.Schema.Field field = new org.apache.avro.Schema.Field(cm.name(), getNativeSchema(cm.cql3Type()));
-                if (cm.isClusteringKey()) {
-                    // clustering keys are optional
-                    field = new org.apache.avro.Schema.Field(cm.name(), org.apache.avro.SchemaBuilder.unionOf().nullType().and().type(field.schema()).endUnion());
-                }
-                fields.add(field);
+        return pkSchemas.computeIfAbsent(tableInfo.key(), k -> buildAvroKeySchema(tableInfo));
+    }
+
+    SchemaAndWriter buildAvroKeySchema(final TableInfo tableInfo) {
+        List<Schema.Field> fields = new ArrayList<>();
+        for (ColumnInfo cm : tableInfo.primaryKeyColumns()) {
+            org.apache.avro.Schema.Field field = new org.apache.avro.Schema.Field(cm.name(), getNativeSchema(cm.cql3Type()));
+            if (cm.isClusteringKey()) {
+                // clustering keys are optional
+                field = new org.apache.avro.Schema.Field(cm.name(), org.apache.avro.SchemaBuilder.unionOf().nullType().and().type(field.schema()).endUnion());
             }
-            org.apache.avro.Schema avroSchema = org.apache.avro.Schema.createRecord(tableInfo.key(), SCHEMA_DOC_PREFIX + tableInfo.key(), tableInfo.name(), false, fields);
-            return new SchemaAndWriter(avroSchema, new SpecificDatumWriter<>(avroSchema));
-        });
+            fields.add(field);
+        }
+        org.apache.avro.Schema avroSchema = org.apache.avro.Schema.createRecord(tableInfo.key(), SCHEMA_DOC_PREFIX + tableInfo.key(), tableInfo.name(), false, fields);
+        return new SchemaAndWriter(avroSchema, new SpecificDatumWriter<>(avroSchema), new AvroKeyEncoder(avroSchema, tableInfo.primaryKeyColumns()));
     }
 
     @AllArgsConstructor
@@ -225,36 +218,77 @@ public abstract class AbstractPulsarMutationSender<T> implements MutationSender<
     }
 
     /**
-     * @param keySchema
+     * Get the key schema of the table descriptor, resolved once per table schema.
+     * @param descriptor the table descriptor
+     * @return the primary key schema and writer
+     */
+    public SchemaAndWriter getAvroKeySchema(final TableDescriptor<T> descriptor) {
+        SchemaAndWriter schemaAndWriter = descriptor.keySchema;
+        if (schemaAndWriter == null) {
+            // rebuild the key schema, the table schema may have changed
+            schemaAndWriter = buildAvroKeySchema(descriptor);
+            pkSchemas.put(descriptor.key(), schemaAndWriter);
+            descriptor.keySchema = schemaAndWriter;
+        }
+        return schemaAndWriter;
+    }
+
+    /**
+     * Get the pulsar producer of the table descriptor, resolved once per table schema.
+     * @param descriptor the table descriptor
+     * @return the pulsar producer
+     */
+    public Producer<KeyValue<byte[], MutationValue>> getProducer(final TableDescriptor<T> descriptor) throws PulsarClientException {
+        Producer<KeyValue<byte[], MutationValue>> producer = descriptor.producer;
+        if (producer == null) {
+            producer = getProducer((TableInfo) descriptor);
+            descriptor.producer = producer;
+        }
+        return producer;
+    }
+
+    /**
+     * Check the primary key is supported, once per table schema.
+     * @param descriptor the table descriptor
      * @param mutation
-     * @return The primary key as an AVRO GenericRecord
+     * @return false if the primary key has unsupported CQL columns
+     */
+    boolean isSupported(final TableDescriptor<T> descriptor, final AbstractMutation<T> mutation) {
+        Boolean supported = descriptor.supported;
+        if (supported == null) {
+            supported = isSupported(mutation);
+            descriptor.supported = supported;
+        }
+        return supported;
+    }
+
+    /**
+     * Encode the mutation primary key, straight from the serialized Cassandra values when available.
+     * @param schemaAndWriter the key schema and encoder
+     * @param mutation the mutation
+     * @return the AVRO binary encoded primary key
      */
-    public org.apache.avro.generic.GenericRecord buildAvroKey(org.apache.avro.Schema keySchema, AbstractMutation<T> mutation) {
-        org.apache.avro.generic.GenericRecord genericRecord = new org.apache.avro.generic.GenericData.Record(keySchema);
-        int i = 0;
-        for (ColumnInfo columnInfo : mutation.primaryKeyColumns()) {
-            if (keySchema.getField(columnInfo.name()) == null)
-                throw new CassandraConnectorSchemaException("Not a valid schema field: " + columnInfo.name());
-            genericRecord.put(columnInfo.name(), cqlToAvro(mutation.getMetadata(), columnInfo.name(), mutation.getPkValues()[i++]));
+    byte[] encodeAvroKey(SchemaAndWriter schemaAndWriter, AbstractMutation<T> mutation) {
+        if (mutation.hasSerializedPkValues() && schemaAndWriter.encoder.supportsSerializedValues()) {
+            return schemaAndWriter.encoder.encode((ByteBuffer[]) mutation.getPkValues());
         }
-        return genericRecord;
+        return schemaAndWriter.encoder.encode(mutation.getPkValues(), (columnName, value) -> cqlToAvro(mutation.getMetadata(), columnName, value));
     }
 
     @Override
     @SuppressWarnings({"rawtypes", "unchecked"})
     public CompletableFuture<MessageId> sendMutationAsync(final AbstractMutation<T> mutation) {
-        if (!isSupported(mutation)) {
+        final TableDescriptor<T> descriptor = mutation.getDescriptor();
+        if (!isSupported(descriptor, mutation)) {
             incSkippedMutations();
             return CompletableFuture.completedFuture(null);
         }
         try {
-            Producer<KeyValue<byte[], MutationValue>> producer = getProducer(mutation);
-            SchemaAndWriter schemaAndWriter = getAvroKeySchema(mutation);
+            Producer<KeyValue<byte[], MutationValue>> producer = getProducer(descriptor);
+            SchemaAndWriter schemaAndWriter = getAvroKeySchema(descriptor);
             TypedMessageBuilder<KeyValue<byte[], MutationValue>> messageBuilder = producer.newMessage();
             return messageBuilder
-                    .value(new KeyValue(
-                            serializeAvroGenericRecord(buildAvroKey(schemaAndWriter.schema, mutation), schemaAndWriter.writer),
-                            mutation.mutationValue()))
+                    .value(new KeyValue(encodeAvroKey(schemaAndWriter, mutation), mutation.mutationValue()))
                     .property(Constants.WRITETIME, mutation.getTs() + "")
                     .property(Constants.SEGMENT_AND_POSITION, mutation.getSegment() + ":" + mutation.getPosition())
                     .property(Constants.TOKEN, mutation.getToken().toString())
@@ -145,13 +145,21 @@ public class AgentConfig {
                     60000L, "CDC_DIR_POLL_INTERVAL_MS", Setting::getEnvAsLong,
                     "Long", "main", 3);
 
+    public static final String CDC_IDX_COALESCE_INTERVAL_MS = "cdcIdxCoalesceIntervalMs";
+    public long cdcIdxCoalesceIntervalMs;
+    public static final Setting<Long> CDC_IDX_COALESCE_INTERVAL_MS_SETTING =
+            new Setting<>(CDC_IDX_COALESCE_INTERVAL_MS, Platform.ALL, (c, s) -> c.cdcIdxCoalesceIntervalMs = Long.parseLong(s), c -> c.cdcIdxCoalesceIntervalMs,
+                    "The minimum interval in milliseconds between two schedulings of the commitlog change events. Events of the same segment received in the meantime are coalesced.",
+                    10L, "CDC_IDX_COALESCE_INTERVAL_MS", Setting::getEnvAsLong,
+                    "Long", "main", 4);
+
     public static final String ERROR_COMMITLOG_REPROCESS_ENABLED = "errorCommitLogReprocessEnabled";
     public boolean errorCommitLogReprocessEnabled;
     public static final Setting<Boolean> ERROR_COMMITLOG_REPROCESS_ENABLED_SETTING =
             new Setting<Boolean>(ERROR_COMMITLOG_REPROCESS_ENABLED, Platform.ALL, (c, s) -> c.errorCommitLogReprocessEnabled = Boolean.parseBoolean(s), c -> c.errorCommitLogReprocessEnabled,
                     "Enable the re-processing of error commitlogs files.",
                     Boolean.FALSE, "CDC_ERROR_COMMITLOG_REPROCESS_ENABLED", Setting::getEnvAsBoolean,
-                    "Boolean", "main", 4);
+                    "Boolean", "main", 5);
 
     public static final String CDC_CONCURRENT_PROCESSORS = "cdcConcurrentProcessors";
     public int cdcConcurrentProcessors;
@@ -159,7 +167,15 @@ public class AgentConfig {
             new Setting<>(CDC_CONCURRENT_PROCESSORS, Platform.ALL, (c, s) -> c.cdcConcurrentProcessors = Integer.parseInt(s), c -> c.cdcConcurrentProcessors,
                     "The number of threads used to process commitlog files. The default value is the `memtable_flush_writers`.",
                     -1, "CDC_CONCURRENT_PROCESSORS", Setting::getEnvAsInteger,
-                    "Integer", "main", 5);
+                    "Integer", "main", 6);
+
+    public static final String MAX_QUEUED_TASKS = "maxQueuedTasks";
+    public int maxQueuedTasks;
+    public static final Setting<Integer> MAX_QUEUED_TASKS_SETTING =
+            new Setting<>(MAX_QUEUED_TASKS, Platform.ALL, (c, s) -> c.maxQueuedTasks = Integer.parseInt(s), c -> c.maxQueuedTasks,
+                    "The maximum number of commitlog segments waiting for processing. Updates of a segment waiting for processing are coalesced, and when the limit is reached, new segments wait for a pending segment to start.",
+                    1024, "CDC_MAX_QUEUED_TASKS", Setting::getEnvAsInteger,
+                    "Integer", "main", 7);
 
     public static final String MAX_INFLIGHT_MESSAGES_PER_TASK = "maxInflightMessagesPerTask";
     public int maxInflightMessagesPerTask;
@@ -167,7 +183,63 @@ public class AgentConfig {
             new Setting<>(MAX_INFLIGHT_MESSAGES_PER_TASK, Platform.PULSAR, (c, s) -> c.maxInflightMessagesPerTask = Integer.parseInt(s), c -> c.maxInflightMessagesPerTask,
                     "The maximum number of in-flight messages per commitlog processing task.",
                     16384, "CDC_MAX_INFLIGHT_MESSAGES_PER_TASK", Setting::getEnvAsInteger,
-                    "Integer", "main", 6);
+                    "Integer", "main", 8);
+
+    public static final String MAX_INFLIGHT_BYTES = "maxInflightBytes";
+    public long maxInflightBytes;
+    public static final Setting<Long> MAX_INFLIGHT_BYTES_SETTING =
+            new Setting<>(MAX_INFLIGHT_BYTES, Platform.PULSAR, (c, s) -> c.maxInflightBytes = Long.parseLong(s), c -> c.maxInflightBytes,
+                    "The maximum estimated size in bytes of the in-flight messages, shared by all the commitlog processing tasks, 0 to disable. When exhausted, the task processing the oldest segment is unblocked first. The estimate covers the primary key, digest, column bitmap and row image of a message, not the other cell values.",
+                    0L, "CDC_MAX_INFLIGHT_BYTES", Setting::getEnvAsLong,
+                    "Long", "main", 9);
+
+    public static final String CHECKPOINT_INTERVAL_MS = "checkpointIntervalMs";
+    public long checkpointIntervalMs;
+    public static final Setting<Long> CHECKPOINT_INTERVAL_MS_SETTING =
+            new Setting<>(CHECKPOINT_INTERVAL_MS, Platform.ALL, (c, s) -> c.checkpointIntervalMs = Long.parseLong(s), c -> c.checkpointIntervalMs,
+                    "The interval in milliseconds between two checkpoints of the acknowledged position of a commitlog segment being processed. After a restart, only the unacknowledged tail of the segment is processed again.",
+                    1000L, "CDC_CHECKPOINT_INTERVAL_MS", Setting::getEnvAsLong,
+                    "Long", "main", 10);
+
+    public static final String COMPACT_DIGEST_ENABLED = "compactDigestEnabled";
+    public boolean compactDigestEnabled;
+    public static final Setting<Boolean> COMPACT_DIGEST_ENABLED_SETTING =
+            new Setting<>(COMPACT_DIGEST_ENABLED, Platform.ALL, (c, s) -> c.compactDigestEnabled = Boolean.parseBoolean(s), c -> c.compactDigestEnabled,
+                    "When true, the mutation digest is a 16 bytes Murmur3 128-bit hash instead of the MD5 hex string. All agents of a cluster should use the same digest mode for the connector to deduplicate mutations.",
+                    false, "CDC_COMPACT_DIGEST_ENABLED", Setting::getEnvAsBoolean,
+                    "Boolean", "main", 11);
+
+    public static final String SEGMENT_PROCESSING_THREADS = "segmentProcessingThreads";
+    public int segmentProcessingThreads;
+    public static final Setting<Integer> SEGMENT_PROCESSING_THREADS_SETTING =
+            new Setting<>(SEGMENT_PROCESSING_THREADS, Platform.ALL, (c, s) -> c.segmentProcessingThreads = Integer.parseInt(s), c -> c.segmentProcessingThreads,
+                    "The number of threads processing the entries of commitlog segments in parallel, preserving the order of mutations per partition token. When 1, each segment is processed by a single thread. Cassandra 3.x only.",
+                    1, "CDC_SEGMENT_PROCESSING_THREADS", Setting::getEnvAsInteger,
+                    "Integer", "main", 12);
+
+    public static final String PRIMARY_REPLICA_ONLY = "primaryReplicaOnly";
+    public boolean primaryReplicaOnly;
+    public static final Setting<Boolean> PRIMARY_REPLICA_ONLY_SETTING =
+            new Setting<>(PRIMARY_REPLICA_ONLY, Platform.ALL, (c, s) -> c.primaryReplicaOnly = Boolean.parseBoolean(s), c -> c.primaryReplicaOnly,
+                    "When true, a node only emits the mutations whose token is owned by its primary replica in the local datacenter, instead of every replica emitting the same mutation. Other replicas emit the mutations when the primary replica is down or when the token range is moving, and keep the other mutations in memory to emit them after primaryReplicaFallbackDelayMs if the primary replica went down in the meantime. Mutations emitted by several replicas are removed by the source connector deduplication.",
+                    false, "CDC_PRIMARY_REPLICA_ONLY", Setting::getEnvAsBoolean,
+                    "Boolean", "main", 13);
+
+    public static final String PRIMARY_REPLICA_FALLBACK_DELAY_MS = "primaryReplicaFallbackDelayMs";
+    public long primaryReplicaFallbackDelayMs;
+    public static final Setting<Long> PRIMARY_REPLICA_FALLBACK_DELAY_MS_SETTING =
+            new Setting<>(PRIMARY_REPLICA_FALLBACK_DELAY_MS, Platform.ALL, (c, s) -> c.primaryReplicaFallbackDelayMs = Long.parseLong(s), c -> c.primaryReplicaFallbackDelayMs,
+                    "When primaryReplicaOnly is true, the delay in milliseconds after which a replica checks again if the primary replica of a skipped mutation is down, and emits the mutation if so. It should cover the failure detection delay. Skipped mutations do not hold in-flight permits, and are lost if the agent restarts during the delay.",
+                    10000L, "CDC_PRIMARY_REPLICA_FALLBACK_DELAY_MS", Setting::getEnvAsLong,
+                    "Long", "main", 14);
+
+    public static final String ROW_IMAGE_TABLES = "rowImageTables";
+    public String rowImageTables;
+    public static final Setting<String> ROW_IMAGE_TABLES_SETTING =
+            new Setting<>(ROW_IMAGE_TABLES, Platform.ALL, (c, s) -> c.rowImageTables = s, c -> c.rowImageTables,
+                    "A comma-separated list of `<keyspace_name>.<table_name>` tables whose events carry the written cell values. When an event holds all the replicated columns, the source connector emits it without reading the row from Cassandra. Tables with counters or non-frozen collections are not supported.",
+                    null, "CDC_ROW_IMAGE_TABLES", Setting::getEnvAsString,
+                    "String", "main", 15);
 
     public static final String SSL_PROVIDER = "sslProvider";
     public String sslProvider = System.getProperty(CDC_PROPERTY_PREFIX + SSL_PROVIDER);
@@ -329,10 +401,19 @@ public class AgentConfig {
         Set<Setting<?>> set = new HashSet<>();
         set.add(CDC_RELOCATION_DIR_SETTING);
         set.add(CDC_DIR_POLL_INTERVAL_MS_SETTING);
+        set.add(CDC_IDX_COALESCE_INTERVAL_MS_SETTING);
         set.add(CDC_CONCURRENT_PROCESSORS_SETTING);
         set.add(ERROR_COMMITLOG_REPROCESS_ENABLED_SETTING);
         set.add(TOPIC_PREFIX_SETTING);
+        set.add(MAX_QUEUED_TASKS_SETTING);
         set.add(MAX_INFLIGHT_MESSAGES_PER_TASK_SETTING);
+        set.add(MAX_INFLIGHT_BYTES_SETTING);
+        set.add(CHECKPOINT_INTERVAL_MS_SETTING);
+        set.add(COMPACT_DIGEST_ENABLED_SETTING);
+        set.add(SEGMENT_PROCESSING_THREADS_SETTING);
+        set.add(PRIMARY_REPLICA_ONLY_SETTING);
+        set.add(PRIMARY_REPLICA_FALLBACK_DELAY_MS_SETTING);
+        set.add(ROW_IMAGE_TABLES_SETTING);
         set.add(SSL_PROVIDER_SETTING);
         set.add(SSL_TRUSTSTORE_PATH_SETTING);
         set.add(TLS_TRUST_CERTS_FILE_PATH_SETTING);
@@ -362,10 +443,19 @@ public class AgentConfig {
     public AgentConfig() {
         this.cdcWorkingDir = CDC_RELOCATION_DIR_SETTING.initDefault();
         this.cdcDirPollIntervalMs = CDC_DIR_POLL_INTERVAL_MS_SETTING.initDefault();
+        this.cdcIdxCoalesceIntervalMs = CDC_IDX_COALESCE_INTERVAL_MS_SETTING.initDefault();
         this.cdcConcurrentProcessors = CDC_CONCURRENT_PROCESSORS_SETTING.initDefault();
         this.errorCommitLogReprocessEnabled = ERROR_COMMITLOG_REPROCESS_ENABLED_SETTING.initDefault();
         this.topicPrefix = TOPIC_PREFIX_SETTING.initDefault();
+        this.maxQueuedTasks = MAX_QUEUED_TASKS_SETTING.initDefault();
         this.maxInflightMessagesPerTask = MAX_INFLIGHT_MESSAGES_PER_TASK_SETTING.initDefault();
+        this.maxInflightBytes = MAX_INFLIGHT_BYTES_SETTING.initDefault();
+        this.checkpointIntervalMs = CHECKPOINT_INTERVAL_MS_SETTING.initDefault();
+        this.compactDigestEnabled = COMPACT_DIGEST_ENABLED_SETTING.initDefault();
+        this.segmentProcessingThreads = SEGMENT_PROCESSING_THREADS_SETTING.initDefault();
+        this.primaryReplicaOnly = PRIMARY_REPLICA_ONLY_SETTING.initDefault();
+        this.primaryReplicaFallbackDelayMs = PRIMARY_REPLICA_FALLBACK_DELAY_MS_SETTING.initDefault();
+        this.rowImageTables = ROW_IMAGE_TABLES_SETTING.initDefault();
         this.sslProvider = SSL_PROVIDER_SETTING.initDefault();
         this.sslTruststorePath = SSL_TRUSTSTORE_PATH_SETTING.initDefault();
         this.tlsTrustCertsFilePath = TLS_TRUST_CERTS_FILE_PATH_SETTING.initDefault();
@@ -387,6 +477,20 @@ public class AgentConfig {
         this.pulsarAuthParams = PULSAR_AUTH_PARAMS_SETTING.initDefault();
     }
 
+    /**
+     * @return the {@code <keyspace_name>.<table_name>} names of the {@link #ROW_IMAGE_TABLES} setting.
+     */
+    public Set<String> rowImageTableSet() {
+        Set<String> tables = new HashSet<>();
+        if (rowImageTables != null) {
+            for (String table : rowImageTables.split(",")) {
+                if (!table.trim().isEmpty())
+                    tables.add(table.trim());
+            }
+        }
+        return tables;
+    }
+
     public static void main(String[] args) {
         try {
             String targetDir = args.length == 1 ? args[0] : "docs/modules/ROOT/pages";
@@ -0,0 +1,169 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * AVRO binary encoder of a table primary key, built once per key schema.
+ * Primary key values are written field by field into a reused per-thread buffer, without building a GenericRecord.
+ */
+public class AvroKeyEncoder {
+
+    /**
+     * Per-thread reused output buffer and binary encoder.
+     */
+    static class EncoderBuffer extends ByteArrayOutputStream {
+        BinaryEncoder encoder;
+
+        EncoderBuffer() {
+            super(256);
+        }
+    }
+
+    /**
+     * Convert a primary key column value to its AVRO representation.
+     */
+    @FunctionalInterface
+    public interface ValueConverter {
+        Object toAvro(String columnName, Object value);
+    }
+
+    static final ThreadLocal<EncoderBuffer> encoderBuffers = ThreadLocal.withInitial(EncoderBuffer::new);
+
+    final String[] fieldNames;
+    final SpecificDatumWriter<Object>[] fieldWriters;
+
+    /**
+     * Serialized value codecs, null when a primary key column requires a Java object conversion.
+     */
+    final AvroValueCodec[] fieldCodecs;
+    final boolean[] nullableFields;
+    final boolean[] emptyValues;
+
+    public AvroKeyEncoder(Schema keySchema) {
+        this(keySchema, null);
+    }
+
+    /**
+     * @param keySchema the primary key schema
+     * @param columns the primary key columns ordered as the key schema fields, or null
+     */
+    @SuppressWarnings("unchecked")
+    public AvroKeyEncoder(Schema keySchema, List<ColumnInfo> columns) {
+        List<Schema.Field> fields = keySchema.getFields();
+        this.fieldNames = new String[fields.size()];
+        this.fieldWriters = new SpecificDatumWriter[fields.size()];
+        this.nullableFields = new boolean[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            this.fieldNames[i] = fields.get(i).name();
+            this.fieldWriters[i] = new SpecificDatumWriter<>(fields.get(i).schema());
+            this.nullableFields[i] = fields.get(i).schema().getType() == Schema.Type.UNION;
+        }
+
+        AvroValueCodec[] codecs = null;
+        boolean[] empty = null;
+        if (columns != null && columns.size() == fields.size()) {
+            codecs = new AvroValueCodec[fields.size()];
+            empty = new boolean[fields.size()];
+            for (int i = 0; i < fields.size(); i++) {
+                codecs[i] = AvroValueCodec.forCql3Type(columns.get(i).cql3Type());
+                empty[i] = AvroValueCodec.acceptsEmptyValue(columns.get(i).cql3Type());
+                if (codecs[i] == null) {
+                    codecs = null;
+                    empty = null;
+                    break;
+                }
+            }
+        }
+        this.fieldCodecs = codecs;
+        this.emptyValues = empty;
+    }
+
+    /**
+     * @return true if the primary key can be encoded from the serialized Cassandra values.
+     */
+    public boolean supportsSerializedValues() {
+        return fieldCodecs != null;
+    }
+
+    /**
+     * @return the number of primary key fields
+     */
+    public int size() {
+        return fieldWriters.length;
+    }
+
+    /**
+     * Encode the primary key values, ordered as the key schema fields.
+     * @param values the primary key column values
+     * @param converter the column value to AVRO converter
+     * @return the AVRO binary encoded primary key
+     */
+    public byte[] encode(Object[] values, ValueConverter converter) {
+        EncoderBuffer buffer = encoderBuffers.get();
+        buffer.reset();
+        buffer.encoder = EncoderFactory.get().directBinaryEncoder(buffer, buffer.encoder);
+        try {
+            for (int i = 0; i < fieldWriters.length; i++) {
+                fieldWriters[i].write(converter.toAvro(fieldNames[i], values[i]), buffer.encoder);
+            }
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Encode the serialized Cassandra primary key values, ordered as the key schema fields.
+     * @param values the serialized primary key column values
+     * @return the AVRO binary encoded primary key
+     */
+    public byte[] encode(ByteBuffer[] values) {
+        if (fieldCodecs == null) {
+            throw new IllegalStateException("Primary key not supported for serialized values encoding");
+        }
+        EncoderBuffer buffer = encoderBuffers.get();
+        buffer.reset();
+        buffer.encoder = EncoderFactory.get().directBinaryEncoder(buffer, buffer.encoder);
+        try {
+            for (int i = 0; i < fieldCodecs.length; i++) {
+                ByteBuffer value = values[i];
+                boolean isNull = value == null || (!value.hasRemaining() && !emptyValues[i]);
+                if (nullableFields[i]) {
+                    // clustering keys are a union of null and the column type
+                    buffer.encoder.writeIndex(isNull ? 0 : 1);
+                } else if (isNull) {
+                    throw new NullPointerException("null value for the key field " + fieldNames[i]);
+                }
+                if (!isNull) {
+                    fieldCodecs[i].encode(value, buffer.encoder);
+                }
+            }
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
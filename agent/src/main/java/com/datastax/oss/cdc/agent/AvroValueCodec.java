@@ -0,0 +1,122 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encode a serialized Cassandra value straight into its AVRO binary representation,
+ * without deserializing it into a Java object.
+ * The AVRO representation is the same as the one produced by the mutation sender cqlToAvro() conversion.
+ */
+@FunctionalInterface
+public interface AvroValueCodec {
+
+    /**
+     * Write the serialized Cassandra value.
+     * @param value the serialized value, the buffer position is not modified
+     * @param encoder the AVRO encoder
+     */
+    void encode(ByteBuffer value, Encoder encoder) throws IOException;
+
+    AvroValueCodec STRING = (value, encoder) -> encoder.writeBytes(value.duplicate()); // UTF-8 bytes
+    AvroValueCodec BYTES = (value, encoder) -> encoder.writeBytes(value.duplicate());
+    AvroValueCodec BOOLEAN = (value, encoder) -> encoder.writeBoolean(value.get(value.position()) != 0);
+    AvroValueCodec TINYINT = (value, encoder) -> encoder.writeInt(Byte.toUnsignedInt(value.get(value.position()))); // AVRO does not support INT8
+    AvroValueCodec SMALLINT = (value, encoder) -> encoder.writeInt(Short.toUnsignedInt(value.getShort(value.position()))); // AVRO does not support INT16
+    AvroValueCodec INT = (value, encoder) -> encoder.writeInt(value.getInt(value.position()));
+    AvroValueCodec BIGINT = (value, encoder) -> encoder.writeLong(value.getLong(value.position()));
+    AvroValueCodec FLOAT = (value, encoder) -> encoder.writeFloat(value.getFloat(value.position()));
+    AvroValueCodec DOUBLE = (value, encoder) -> encoder.writeDouble(value.getDouble(value.position()));
+    // timestamp-millis
+    AvroValueCodec TIMESTAMP = BIGINT;
+    // Cassandra dates are unsigned days with the epoch at 2^31, AVRO dates are days from the unix epoch
+    AvroValueCodec DATE = (value, encoder) -> encoder.writeInt(value.getInt(value.position()) + Integer.MIN_VALUE);
+    // Cassandra time is in nanoseconds, AVRO time is in microseconds
+    AvroValueCodec TIME = (value, encoder) -> encoder.writeLong(value.getLong(value.position()) / 1000);
+    AvroValueCodec UUID = new AvroValueCodec() {
+        final char[] digits = "0123456789abcdef".toCharArray();
+        final ThreadLocal<byte[]> uuidBuffers = ThreadLocal.withInitial(() -> new byte[36]);
+
+        @Override
+        public void encode(ByteBuffer value, Encoder encoder) throws IOException {
+            // write the canonical string representation of the 16 raw bytes
+            byte[] uuid = uuidBuffers.get();
+            int j = 0;
+            for (int i = 0; i < 16; i++) {
+                if (i == 4 || i == 6 || i == 8 || i == 10) {
+                    uuid[j++] = '-';
+                }
+                int b = value.get(value.position() + i);
+                uuid[j++] = (byte) digits[(b >> 4) & 0x0F];
+                uuid[j++] = (byte) digits[b & 0x0F];
+            }
+            encoder.writeBytes(uuid, 0, uuid.length);
+        }
+    };
+
+    /**
+     * @param cql3Type the CQL type
+     * @return the codec of the CQL type, or null if the CQL type requires a Java object conversion
+     */
+    static AvroValueCodec forCql3Type(String cql3Type) {
+        switch (cql3Type) {
+            case "ascii":
+            case "text":
+            case "varchar":
+                return STRING;
+            case "blob":
+                return BYTES;
+            case "boolean":
+                return BOOLEAN;
+            case "tinyint":
+                return TINYINT;
+            case "smallint":
+                return SMALLINT;
+            case "int":
+                return INT;
+            case "bigint":
+                return BIGINT;
+            case "float":
+                return FLOAT;
+            case "double":
+                return DOUBLE;
+            case "timestamp":
+                return TIMESTAMP;
+            case "date":
+                return DATE;
+            case "time":
+                return TIME;
+            case "uuid":
+            case "timeuuid":
+                return UUID;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param cql3Type the CQL type
+     * @return true if an empty serialized value is a valid non-null value of the CQL type
+     */
+    static boolean acceptsEmptyValue(String cql3Type) {
+        AvroValueCodec codec = forCql3Type(cql3Type);
+        return codec == STRING || codec == BYTES;
+    }
+}
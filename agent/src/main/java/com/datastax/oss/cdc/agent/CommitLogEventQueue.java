@@ -0,0 +1,65 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesce the commitlog file change events by segment, keeping the latest notification of each segment.
+ * Pending notifications are drained oldest segment first.
+ */
+public class CommitLogEventQueue {
+    private final TreeMap<Long, File> files = new TreeMap<>();
+
+    final AtomicLong coalescedEvents;
+
+    public CommitLogEventQueue(AtomicLong coalescedEvents) {
+        this.coalescedEvents = coalescedEvents;
+    }
+
+    public synchronized void add(File file) {
+        if (files.put(CommitLogUtil.extractTimestamp(file.getName()), file) != null) {
+            coalescedEvents.incrementAndGet();
+        }
+        notifyAll();
+    }
+
+    public synchronized int size() {
+        return files.size();
+    }
+
+    /**
+     * Wait for at least one pending notification.
+     */
+    public synchronized void awaitNotEmpty() throws InterruptedException {
+        while (files.isEmpty()) {
+            wait();
+        }
+    }
+
+    /**
+     * @return the pending notifications ordered by segment, possibly empty.
+     */
+    public synchronized List<File> drain() {
+        List<File> drained = new ArrayList<>(files.values());
+        files.clear();
+        return drained;
+    }
+}
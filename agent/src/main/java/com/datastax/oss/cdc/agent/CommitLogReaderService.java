@@ -22,14 +22,14 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.util.List;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 import java.util.function.IntBinaryOperator;
 import java.util.function.LongBinaryOperator;
 
@@ -39,29 +39,35 @@ public abstract class CommitLogReaderService implements Runnable, AutoCloseable
     public static final String ARCHIVE_FOLDER = "archives";
     public static final String ERROR_FOLDER = "errors";
 
+    static final byte[] COMPLETED = "COMPLETED".getBytes(StandardCharsets.US_ASCII);
+
     /**
-     * Submitted tasks to process CL files
+     * Schedules the tasks processing CL files, one running task per segment.
      */
-    static final ConcurrentMap<Long, Task> submittedTasks = new ConcurrentHashMap<>();
+    static final SegmentScheduler segmentScheduler = new SegmentScheduler();
 
     /**
-     * Pending tasks to process CL files.
+     * Identify the working segment (not immutable) to properly garbageCollect immutable CL files.
      */
-    static final ConcurrentMap<Long, Task> pendingTasks = new ConcurrentHashMap<>();
+    static AtomicLong lastSegment = new AtomicLong(0);
 
     /**
-     * Uncompleted segments task for delayed task cleanup
+     * Agent-wide budget of in-flight message bytes, shared by all tasks.
      */
-    static final ConcurrentMap<Long, Task> uncleanedTasks = new ConcurrentHashMap<>();
+    static final InflightBudget inflightBudget = new InflightBudget(Long.MAX_VALUE);
+
+    static final AtomicLong coalescedCommitLogEvents = new AtomicLong(0);
 
     /**
-     * Identify the working segment (not immutable) to properly garbageCollect immutable CL files.
+     * Mutations skipped because their primary replica emitted them, and mutations emitted in place of the primary replica.
      */
-    static AtomicLong lastSegment = new AtomicLong(0);
+    static final AtomicLong skippedReplicaMutations = new AtomicLong(0);
+    static final AtomicLong fallbackReplicaMutations = new AtomicLong(0);
 
-    static AtomicInteger maxSubmittedTasks = new AtomicInteger(0);
-    static AtomicInteger maxPendingTasks = new AtomicInteger(0);
-    static AtomicInteger maxUncleanedTasks = new AtomicInteger(0);
+    /**
+     * Mutations skipped in favor of their primary replica when primaryReplicaOnly is enabled.
+     */
+    static final SkippedMutationLog skippedMutationLog = new SkippedMutationLog(skippedReplicaMutations);
 
     final AgentConfig config;
     final MutationSender<?> mutationSender;
@@ -69,12 +75,17 @@ public abstract class CommitLogReaderService implements Runnable, AutoCloseable
     final CommitLogTransfer commitLogTransfer;
 
     /**
-     * ordered commitlog file queue.
+     * commitlog file change events, coalesced by segment.
      */
-    final PriorityBlockingQueue<File> commitLogQueue;
+    final CommitLogEventQueue commitLogQueue;
 
     /**
-     * Consumes commitlog files in parallel.
+     * Reused buffer to read the _cdc.idx files, holding the synced position and an optional COMPLETED line.
+     */
+    final ByteBuffer cdcIndexBuffer = ByteBuffer.allocate(64);
+
+    /**
+     * Consumes commitlog files in parallel, fed by the {@link #segmentScheduler}.
      */
     ExecutorService tasksExecutor;
 
@@ -86,15 +97,29 @@ public abstract class CommitLogReaderService implements Runnable, AutoCloseable
         this.mutationSender = mutationSender;
         this.segmentOffsetWriter = segmentOffsetWriter;
         this.commitLogTransfer = commitLogTransfer;
-        this.commitLogQueue = new PriorityBlockingQueue<>(128, CommitLogUtil::compareCommitLogs);
+        this.commitLogQueue = new CommitLogEventQueue(coalescedCommitLogEvents);
+        inflightBudget.setMaxBytes(config.maxInflightBytes > 0 ? config.maxInflightBytes : Long.MAX_VALUE);
+        skippedMutationLog.setDelayMs(config.primaryReplicaFallbackDelayMs);
+        if (config.primaryReplicaOnly) {
+            skippedMutationLog.start();
+        }
     }
 
     @Override
     public void run() {
+        long lastFlush = 0;
         while(true) {
             try {
-                File file = commitLogQueue.take();
-                submitCommitLog(file);
+                commitLogQueue.awaitNotEmpty();
+                // let the events of a burst coalesce before scheduling tasks
+                long delay = lastFlush + config.cdcIdxCoalesceIntervalMs - System.currentTimeMillis();
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+                lastFlush = System.currentTimeMillis();
+                for (File file : commitLogQueue.drain()) {
+                    submitCommitLog(file);
+                }
             } catch (InterruptedException e) {
                 log.error("error:", e);
             }
@@ -106,6 +131,7 @@ public abstract class CommitLogReaderService implements Runnable, AutoCloseable
         try {
             tasksExecutor.shutdown();
             tasksExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            skippedMutationLog.close();
         } catch (InterruptedException e) {
             log.error("error:", e);
         }
@@ -120,17 +146,10 @@ public abstract class CommitLogReaderService implements Runnable, AutoCloseable
                     garbageCollect(seg);
                 }
                 lastSegment.getAndAccumulate(seg, Math::max);
-                List<String> lines = Files.readAllLines(file.toPath(), Charset.forName("UTF-8"));
-                if (lines.size() > 0) {
-                    int pos = Integer.parseInt(lines.get(0));
-                    boolean completed = false;
-                    try {
-                        if(lines.get(1).contains("COMPLETED")) {
-                            completed = true;
-                        }
-                    } catch(Exception ex) {
-                    }
-                    Task runningTask = submittedTasks.get(seg);
+                int pos = readCdcIndex(file);
+                if (pos >= 0) {
+                    boolean completed = isCdcIndexCompleted();
+                    Task runningTask = segmentScheduler.runningTask(seg);
                     if (pos > segmentOffsetWriter.position(Optional.empty(), seg) && (runningTask == null || pos > runningTask.syncPosition)) {
                         String commitlogName = file.getName().substring(0, file.getName().length() - "_cdc.idx".length()) + ".log";
                         addPendingTask(createTask(commitlogName, seg, pos, completed));
@@ -149,6 +168,45 @@ public abstract class CommitLogReaderService implements Runnable, AutoCloseable
         }
     }
 
+    /**
+     * Read the synced position of a _cdc.idx file into the reused buffer.
+     * @param file the _cdc.idx file
+     * @return the synced position, or -1 if the file is empty
+     */
+    int readCdcIndex(File file) throws IOException {
+        cdcIndexBuffer.clear();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (cdcIndexBuffer.hasRemaining() && channel.read(cdcIndexBuffer) > 0);
+        }
+        cdcIndexBuffer.flip();
+        int pos = -1;
+        while (cdcIndexBuffer.hasRemaining()) {
+            byte b = cdcIndexBuffer.get(cdcIndexBuffer.position());
+            if (b < '0' || b > '9')
+                break;
+            pos = (pos < 0 ? 0 : pos * 10) + (b - '0');
+            cdcIndexBuffer.get();
+        }
+        return pos;
+    }
+
+    /**
+     * @return true if the line following the position read by {@link #readCdcIndex(File)} is COMPLETED
+     */
+    boolean isCdcIndexCompleted() {
+        while (cdcIndexBuffer.hasRemaining()
+                && (cdcIndexBuffer.get(cdcIndexBuffer.position()) == '\r' || cdcIndexBuffer.get(cdcIndexBuffer.position()) == '\n')) {
+            cdcIndexBuffer.get();
+        }
+        if (cdcIndexBuffer.remaining() < COMPLETED.length)
+            return false;
+        for (byte b : COMPLETED) {
+            if (cdcIndexBuffer.get() != b)
+                return false;
+        }
+        return true;
+    }
+
     public void initialize() throws Exception {
         File relocationDir = new File(config.cdcWorkingDir);
         if (!relocationDir.exists()) {
@@ -182,33 +240,8 @@ public abstract class CommitLogReaderService implements Runnable, AutoCloseable
     public abstract Task createTask(String commitlogName, long seg, int pos, boolean completed);
 
 
-    public void addPendingTask(Task task) {
-        pendingTasks.put(task.segment, task);
-        maxPendingTasks.getAndAccumulate(pendingTasks.size(), Math::max);
-        log.trace("maxPendingTasks={}", maxPendingTasks);
-        maybeRunPendingTask(task.segment);
-    }
-
-    /**
-     * Start the pending task if not yet running.
-     * This ensures that only on task per segment is running.
-     * @param segment id
-     * @return the running task or null
-     */
-    public Task maybeRunPendingTask(long segment) {
-        Task task = submittedTasks.compute(segment, (k1, v1) -> {
-            if (v1 == null) {
-                Task pendingTask = pendingTasks.get(segment);
-                if (pendingTask != null) {
-                    pendingTasks.remove(segment);
-                    tasksExecutor.submit(pendingTask);
-                }
-                return pendingTask;
-            }
-            return v1;
-        });
-        maxSubmittedTasks.getAndAccumulate(submittedTasks.size(), Math::max);
-        return task;
+    public void addPendingTask(Task task) throws InterruptedException {
+        segmentScheduler.submit(task);
     }
 
     /**
@@ -217,12 +250,8 @@ public abstract class CommitLogReaderService implements Runnable, AutoCloseable
      * @param lastSegment the last segment id
      */
     private void garbageCollect(long lastSegment) {
-        for(Map.Entry<Long, Task> entry : uncleanedTasks.entrySet()) {
-            if (entry.getKey() < lastSegment
-                    && submittedTasks.get(entry.getKey()) == null
-                    && pendingTasks.get(entry.getKey()) == null) {
-                entry.getValue().cleanup(entry.getValue().getStatus());
-            }
+        for(Task task : segmentScheduler.pollUncleanedTasks(lastSegment)) {
+            task.cleanup(task.getStatus());
         }
     }
 
@@ -254,6 +283,21 @@ public abstract class CommitLogReaderService implements Runnable, AutoCloseable
         @ToString.Exclude
         Semaphore inflightMessagesSemaphore = new Semaphore(config.maxInflightMessagesPerTask);
 
+        /**
+         * In-flight commitlog entries, to checkpoint the acknowledged position while the task is running.
+         */
+        @EqualsAndHashCode.Exclude
+        @ToString.Exclude
+        final SegmentAckTracker ackTracker = new SegmentAckTracker(1024);
+
+        @EqualsAndHashCode.Exclude
+        @ToString.Exclude
+        final AtomicLong lastCheckpointMs = new AtomicLong(System.currentTimeMillis());
+
+        @EqualsAndHashCode.Exclude
+        @ToString.Exclude
+        int checkpointedPosition = -1;
+
         public Task(String filename, long segment, int syncPosition, boolean completed) {
             this.filename = filename;
             this.segment = segment;
@@ -263,12 +307,76 @@ public abstract class CommitLogReaderService implements Runnable, AutoCloseable
 
         public abstract File getFile();
 
+        /**
+         * Acquire an in-flight message permit and the mutation size from the agent-wide byte budget, may block.
+         * @param mutation the mutation to send
+         * @return the acquired bytes to release when the send completes
+         */
+        public int acquireInflight(AbstractMutation<?> mutation) {
+            int size = mutation.estimatedSize();
+            inflightMessagesSemaphore.acquireUninterruptibly();
+            inflightBudget.acquireUninterruptibly(segment, size);
+            ackTracker.retain(mutation.getPosition());
+            return size;
+        }
+
+        /**
+         * Release the in-flight resources of a sent mutation.
+         * @param mutation the sent mutation
+         * @param size the acquired bytes
+         * @param acked true if the mutation will not be sent again, allowing to checkpoint its position
+         */
+        public void releaseInflight(AbstractMutation<?> mutation, int size, boolean acked) {
+            if (acked) {
+                ackTracker.release(mutation.getPosition());
+                maybeCheckpoint();
+            }
+            inflightBudget.release(size);
+            inflightMessagesSemaphore.release();
+        }
+
+        /**
+         * Record a mutation emitted by its primary replica in the {@link #skippedMutationLog}.
+         * The mutation holds no in-flight resources, so that checkpoints pass its position.
+         * @param shouldEmit true if the local node should emit the mutation after the fallback delay
+         * @param replay sends the mutation without in-flight resources
+         */
+        public void skip(BooleanSupplier shouldEmit, Runnable replay) {
+            skippedMutationLog.skip(shouldEmit, replay);
+        }
+
+        /**
+         * Persist the acknowledged watermark of the segment if the checkpoint interval has elapsed.
+         * This is called before releasing the in-flight permit, so checkpoints never race with {@link #finish}.
+         */
+        public void maybeCheckpoint() {
+            long now = System.currentTimeMillis();
+            long last = lastCheckpointMs.get();
+            if (now - last < config.checkpointIntervalMs || !lastCheckpointMs.compareAndSet(last, now))
+                return;
+            synchronized (lastCheckpointMs) {
+                int watermark = ackTracker.watermark();
+                if (watermark > checkpointedPosition) {
+                    try {
+                        segmentOffsetWriter.position(Optional.empty(), segment, watermark);
+                        segmentOffsetWriter.flush(Optional.empty(), segment);
+                        checkpointedPosition = watermark;
+                        log.debug("Task segment={} checkpointed position={}", segment, watermark);
+                    } catch (IOException e) {
+                        log.warn("Task segment={} failed to checkpoint position={}", segment, watermark, e);
+                    }
+                }
+            }
+        }
+
         public void finish(TaskStatus taskStatus, int lastSentPosition) {
+            boolean retry = false;
             if (taskStatus.equals(TaskStatus.SUCCESS)) {
                 try {
                     log.debug("Task segment={} waiting for {} in-flight messages",
                             segment, config.maxInflightMessagesPerTask - inflightMessagesSemaphore.availablePermits());
                     inflightMessagesSemaphore.acquireUninterruptibly(config.maxInflightMessagesPerTask);
+                    inflightMessagesSemaphore.release(config.maxInflightMessagesPerTask);
                     if (lastException != null)
                         throw lastException;
                     if (!completed && lastSentPosition > 0) {
@@ -278,24 +386,17 @@ public abstract class CommitLogReaderService implements Runnable, AutoCloseable
                     }
                     log.debug("Task segment={} completed={} lastSentPosition={} succeed", segment, completed, lastSentPosition);
                 } catch (Throwable e) {
-                    // eventually resubmit self after 10s
+                    // resubmit self
                     log.error("Task segment={} completed={} syncPosition={} failed, retrying:", segment, completed, syncPosition, e);
-                    pendingTasks.putIfAbsent(segment, this);
+                    retry = true;
+                    lastException = null;
+                    ackTracker.clear();
                 }
             }
 
-            submittedTasks.remove(this.segment);
-            Task nextTask = maybeRunPendingTask(this.segment);
-            if (nextTask == null) {
-                if (completed) {
-                    uncleanedTasks.remove(segment);
-                    cleanup(taskStatus);
-                } else {
-                    // task will be cleaned up when processing the next segment
-                    this.status = taskStatus;
-                    uncleanedTasks.put(segment, this);
-                    maxUncleanedTasks.getAndAccumulate(uncleanedTasks.size(), Math::max);
-                }
+            this.status = taskStatus;
+            if (segmentScheduler.finish(this, retry)) {
+                cleanup(taskStatus);
             }
         }
 
@@ -0,0 +1,141 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Agent-wide budget of bytes held by in-flight mutations, shared by all the commitlog processing tasks.
+ * <p>
+ * Blocked senders are served in order of segment, then in arrival order, so the oldest segment
+ * is drained first and a task never overtakes an older waiter of the same segment.
+ * A single mutation larger than the budget is admitted when nothing else is in-flight.
+ */
+public class InflightBudget {
+
+    private static class Waiter implements Comparable<Waiter> {
+        final long segment;
+        final long sequence;
+        final long bytes;
+        final Condition condition;
+
+        Waiter(long segment, long sequence, long bytes, Condition condition) {
+            this.segment = segment;
+            this.sequence = sequence;
+            this.bytes = bytes;
+            this.condition = condition;
+        }
+
+        @Override
+        public int compareTo(Waiter o) {
+            int c = Long.compare(segment, o.segment);
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    private long sequence = 0;
+
+    private volatile long maxBytes;
+    private final AtomicLong bytesInFlight = new AtomicLong(0);
+    private final AtomicLong blockedAcquisitions = new AtomicLong(0);
+    private final AtomicLong blockedNanos = new AtomicLong(0);
+
+    public InflightBudget(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        lock.lock();
+        try {
+            this.maxBytes = maxBytes;
+            signalHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public long bytesInFlight() {
+        return bytesInFlight.get();
+    }
+
+    public long blockedAcquisitions() {
+        return blockedAcquisitions.get();
+    }
+
+    public long blockedTimeMs() {
+        return blockedNanos.get() / 1_000_000;
+    }
+
+    /**
+     * Acquire bytes from the budget, blocking until they are available and no older waiter is pending.
+     * @param segment the commitlog segment of the mutation
+     * @param bytes the estimated size of the in-flight mutation
+     */
+    public void acquireUninterruptibly(long segment, long bytes) {
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && fits(bytes)) {
+                bytesInFlight.addAndGet(bytes);
+                return;
+            }
+            Waiter waiter = new Waiter(segment, sequence++, bytes, lock.newCondition());
+            waiters.add(waiter);
+            long start = System.nanoTime();
+            while (waiters.peek() != waiter || !fits(bytes)) {
+                waiter.condition.awaitUninterruptibly();
+            }
+            waiters.poll();
+            bytesInFlight.addAndGet(bytes);
+            blockedAcquisitions.incrementAndGet();
+            blockedNanos.addAndGet(System.nanoTime() - start);
+            // the next waiter may fit in the remaining budget
+            signalHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long bytes) {
+        lock.lock();
+        try {
+            bytesInFlight.addAndGet(-bytes);
+            signalHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean fits(long bytes) {
+        long inflight = bytesInFlight.get();
+        return inflight == 0 || inflight + bytes <= maxBytes;
+    }
+
+    private void signalHead() {
+        Waiter head = waiters.peek();
+        if (head != null) {
+            head.condition.signal();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the commitlog entries of a segment on a shared executor, routed to a lane by partition token.
+ * Entries of a lane run sequentially in submission order, so mutations of a partition are processed
+ * in commitlog order while distinct partitions are processed in parallel.
+ */
+public class PartitionOrderedExecutor {
+    /**
+     * Max number of entries processed by a lane before yielding its thread to other lanes.
+     */
+    static final int MAX_LANE_BATCH = 128;
+
+    final Executor executor;
+    final Lane[] lanes;
+    final int maxQueuedEntries;
+    final Semaphore queuedEntries;
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public PartitionOrderedExecutor(Executor executor, int lanes, int maxQueuedEntries) {
+        this.executor = executor;
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++)
+            this.lanes[i] = new Lane();
+        this.maxQueuedEntries = maxQueuedEntries;
+        this.queuedEntries = new Semaphore(maxQueuedEntries);
+    }
+
+    /**
+     * Queue an entry on the lane of the partition token, may block when too many entries are queued.
+     * @param tokenHash the hash of the partition token
+     * @param entry the entry processing
+     * @throws RuntimeException if a previous entry failed
+     */
+    public void submit(int tokenHash, Runnable entry) {
+        Throwable t = failure.get();
+        if (t != null)
+            throw new RuntimeException("Processing of a previous entry failed", t);
+        queuedEntries.acquireUninterruptibly();
+        Lane lane = lanes[Math.floorMod(tokenHash, lanes.length)];
+        lane.queue.add(entry);
+        lane.schedule();
+    }
+
+    /**
+     * Skip the queued entries not yet started, after a failure outside of the entries processing.
+     * @param t the failure cause
+     */
+    public void abort(Throwable t) {
+        failure.compareAndSet(null, t);
+    }
+
+    /**
+     * Wait for all the queued entries to be processed.
+     * @throws Exception the first failure of an entry processing
+     */
+    public void await() throws Exception {
+        queuedEntries.acquireUninterruptibly(maxQueuedEntries);
+        queuedEntries.release(maxQueuedEntries);
+        Throwable t = failure.get();
+        if (t instanceof Exception)
+            throw (Exception) t;
+        if (t != null)
+            throw new RuntimeException(t);
+    }
+
+    class Lane implements Runnable {
+        final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true))
+                executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            Runnable entry;
+            int processed = 0;
+            while (processed++ < MAX_LANE_BATCH && (entry = queue.poll()) != null) {
+                try {
+                    // skip remaining entries once an entry failed, the task will be retried
+                    if (failure.get() == null)
+                        entry.run();
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    queuedEntries.release();
+                }
+            }
+            scheduled.set(false);
+            if (!queue.isEmpty())
+                schedule();
+        }
+    }
+}
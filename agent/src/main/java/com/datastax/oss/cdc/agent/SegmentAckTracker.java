@@ -0,0 +1,141 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+/**
+ * Tracks the in-flight commitlog entries of a segment task to compute a low watermark:
+ * the position of the last entry such that this entry and all the previous ones are fully acknowledged.
+ * <p>
+ * Entries are registered in commitlog order with one reference held by the entry processing,
+ * each sent mutation of the entry holds another reference until acknowledged. Entries are kept
+ * in a ring buffer growing as needed, and the watermark advances over the contiguous released
+ * entries at the head of the ring, whatever the order of acknowledgements.
+ */
+public class SegmentAckTracker {
+    private int[] positions;
+    private int[] refs;
+    private int mask;
+    private long head = 0;
+    private long tail = 0;
+    private int watermark = -1;
+
+    /**
+     * @param initialCapacity the initial number of tracked entries, a power of two
+     */
+    public SegmentAckTracker(int initialCapacity) {
+        if (Integer.bitCount(initialCapacity) != 1)
+            throw new IllegalArgumentException("capacity must be a power of two");
+        this.positions = new int[initialCapacity];
+        this.refs = new int[initialCapacity];
+        this.mask = initialCapacity - 1;
+    }
+
+    /**
+     * Register a commitlog entry, holding a reference released by {@link #release(int)} once processed.
+     * @param position the entry position, greater than the previously registered position
+     */
+    public synchronized void register(int position) {
+        if (tail > head && position <= positions[(int) ((tail - 1) & mask)])
+            throw new IllegalArgumentException("position " + position + " not greater than the last registered position");
+        if (tail - head == positions.length)
+            grow();
+        int slot = (int) (tail & mask);
+        positions[slot] = position;
+        refs[slot] = 1;
+        tail++;
+    }
+
+    /**
+     * Hold an additional reference on a registered entry, for an in-flight mutation.
+     */
+    public synchronized void retain(int position) {
+        refs[slot(position)]++;
+    }
+
+    /**
+     * Release a reference on a registered entry, advancing the watermark when the head entries are fully released.
+     */
+    public synchronized void release(int position) {
+        if (--refs[slot(position)] == 0) {
+            while (head < tail && refs[(int) (head & mask)] == 0) {
+                watermark = positions[(int) (head & mask)];
+                head++;
+            }
+        }
+    }
+
+    /**
+     * @return the position of the last fully acknowledged entry without unacknowledged previous entries, or -1.
+     */
+    public synchronized int watermark() {
+        return watermark;
+    }
+
+    /**
+     * Forget all the tracked entries, when the task is retried.
+     */
+    public synchronized void clear() {
+        head = 0;
+        tail = 0;
+        watermark = -1;
+    }
+
+    /**
+     * @return the number of tracked entries.
+     */
+    public synchronized int size() {
+        return (int) (tail - head);
+    }
+
+    private int slot(int position) {
+        // fast path, the last registered entry
+        if (tail > head) {
+            int last = (int) ((tail - 1) & mask);
+            if (positions[last] == position)
+                return last;
+        }
+        long low = head;
+        long high = tail - 1;
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            int midPosition = positions[(int) (mid & mask)];
+            if (midPosition < position) {
+                low = mid + 1;
+            } else if (midPosition > position) {
+                high = mid - 1;
+            } else {
+                return (int) (mid & mask);
+            }
+        }
+        throw new IllegalStateException("position " + position + " not tracked");
+    }
+
+    private void grow() {
+        int size = positions.length;
+        int[] newPositions = new int[size * 2];
+        int[] newRefs = new int[size * 2];
+        for (int i = 0; i < size; i++) {
+            int slot = (int) ((head + i) & mask);
+            newPositions[i] = positions[slot];
+            newRefs[i] = refs[slot];
+        }
+        this.positions = newPositions;
+        this.refs = newRefs;
+        this.mask = size * 2 - 1;
+        this.tail = size;
+        this.head = 0;
+    }
+}
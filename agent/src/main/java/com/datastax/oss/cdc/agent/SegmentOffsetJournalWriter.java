@@ -0,0 +1,308 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Segment offsets stored in a single preallocated memory-mapped journal of fixed-size records
+ * (segment, position, checksum). Flushing an offset appends a record to the mapped buffer,
+ * and the journal is fsynced by a timer. Removed segments are written as tombstones,
+ * and the journal is compacted to the live segments when full.
+ * Loading the offsets reads the journal sequentially up to the first invalid record.
+ */
+@Slf4j
+public class SegmentOffsetJournalWriter implements SegmentOffsetWriter, AutoCloseable {
+    public static final String JOURNAL_FILE = "segment_offsets.journal";
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final long DEFAULT_SYNC_INTERVAL_MS = 1000L;
+
+    /**
+     * segment (8 bytes), position (4 bytes), CRC32 of segment and position (4 bytes).
+     */
+    static final int RECORD_SIZE = 16;
+    static final int REMOVED = -1;
+
+    private final ConcurrentMap<Long, Integer> segmentOffsets = new ConcurrentHashMap<>();
+
+    /**
+     * Last journaled position of the live segments, guarded by this.
+     */
+    private final Map<Long, Integer> journaledOffsets = new HashMap<>();
+
+    private final File cdcLogDir;
+    private final CRC32 crc32 = new CRC32();
+    private final byte[] recordBytes = new byte[RECORD_SIZE - 4];
+    private final ScheduledExecutorService syncExecutor;
+
+    private int capacity;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writeIndex = 0;
+    private volatile boolean dirty = false;
+
+    /**
+     * Set by {@link #close()}, guarded by this.
+     */
+    private boolean closed = false;
+
+    public SegmentOffsetJournalWriter(String cdcLogDir) throws IOException {
+        this(cdcLogDir, DEFAULT_CAPACITY, DEFAULT_SYNC_INTERVAL_MS);
+    }
+
+    /**
+     * @param cdcLogDir the directory of the journal
+     * @param capacity the initial number of records of the journal
+     * @param syncIntervalMs the journal fsync period, or 0 to only fsync on close and compaction
+     */
+    public SegmentOffsetJournalWriter(String cdcLogDir, int capacity, long syncIntervalMs) throws IOException {
+        this.cdcLogDir = new File(cdcLogDir);
+        if (!this.cdcLogDir.exists())
+            Files.createDirectories(this.cdcLogDir.toPath());
+        this.capacity = capacity;
+        map(journalPath());
+        if (syncIntervalMs > 0) {
+            this.syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "CdcOffsetJournalSync");
+                t.setDaemon(true);
+                return t;
+            });
+            this.syncExecutor.scheduleWithFixedDelay(this::sync, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncExecutor = null;
+        }
+    }
+
+    Path journalPath() {
+        return new File(cdcLogDir, JOURNAL_FILE).toPath();
+    }
+
+    private void map(Path path) throws IOException {
+        if (channel != null)
+            channel.close();
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        capacity = (int) Math.max(capacity, channel.size() / RECORD_SIZE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_SIZE);
+    }
+
+    @Override
+    public int position(Optional<UUID> nodeId, long segmentId) {
+        return segmentOffsets.getOrDefault(segmentId, 0);
+    }
+
+    @Override
+    public void position(Optional<UUID> nodeId, long segment, int position) {
+        this.segmentOffsets.put(segment, position);
+    }
+
+    @Override
+    public void flush(Optional<UUID> nodeId, long segmentId) throws IOException {
+        ensureOpen();
+        Integer position = segmentOffsets.get(segmentId);
+        if (position != null)
+            append(segmentId, position);
+    }
+
+    /**
+     * Force the journal on disk if modified since the last sync.
+     */
+    public synchronized void sync() {
+        if (dirty && !closed) {
+            dirty = false;
+            buffer.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncExecutor != null)
+            syncExecutor.shutdown();
+        synchronized (this) {
+            if (closed)
+                return;
+            for (Map.Entry<Long, Integer> entry : segmentOffsets.entrySet())
+                append(entry.getKey(), entry.getValue());
+            buffer.force();
+            dirty = false;
+            closed = true;
+            channel.close();
+        }
+    }
+
+    private synchronized void ensureOpen() {
+        if (closed)
+            throw new IllegalStateException("The segment offsets journal " + journalPath() + " is closed");
+    }
+
+    @Override
+    public synchronized void loadOffsets() throws IOException {
+        ensureOpen();
+        journaledOffsets.clear();
+        writeIndex = 0;
+        while (writeIndex < capacity) {
+            int offset = writeIndex * RECORD_SIZE;
+            long segment = buffer.getLong(offset);
+            int position = buffer.getInt(offset + 8);
+            if (buffer.getInt(offset + 12) != checksum(segment, position))
+                break;  // end of the journal or torn write
+            if (position == REMOVED) {
+                journaledOffsets.remove(segment);
+            } else {
+                journaledOffsets.put(segment, position);
+            }
+            writeIndex++;
+        }
+        // records after a torn tail write are zeros, anything else is a corruption
+        for (int i = (writeIndex + 1) * RECORD_SIZE; i < capacity * RECORD_SIZE; i++) {
+            if (buffer.get(i) != 0) {
+                log.warn("Invalid offsets journal record {} of {} followed by non-zero bytes at {}, ignoring the next records",
+                        writeIndex, journalPath(), i);
+                break;
+            }
+        }
+        // ignore and overwrite a torn record
+        for (int i = writeIndex * RECORD_SIZE; i < Math.min(capacity, writeIndex + 1) * RECORD_SIZE; i++)
+            buffer.put(i, (byte) 0);
+        segmentOffsets.putAll(journaledOffsets);
+        migrateOffsetFiles();
+        log.info("Loaded {} segment offsets from {} journal records", journaledOffsets.size(), writeIndex);
+    }
+
+    /**
+     * Move the offsets saved by the {@link SegmentOffsetFileWriter} into the journal.
+     */
+    private void migrateOffsetFiles() throws IOException {
+        File[] files = cdcLogDir.listFiles(f -> f.isFile() && SegmentOffsetFileWriter.COMMITLOG_OFFSETS_REGEX_PATTERN.matcher(f.getName()).matches());
+        if (files == null || files.length == 0)
+            return;
+        for (File f : files) {
+            long segment = Long.parseLong(f.getName().substring(0, f.getName().length() - SegmentOffsetFileWriter.COMMITLOG_OFFSET_FILE_SUFFIX.length()));
+            if (!journaledOffsets.containsKey(segment)) {
+                String content = new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8).trim();
+                int position = SegmentOffsetFileWriter.deserializePosition(content);
+                segmentOffsets.put(segment, position);
+                append(segment, position);
+            }
+        }
+        buffer.force();
+        dirty = false;
+        for (File f : files)
+            Files.deleteIfExists(f.toPath());
+        log.info("Migrated {} segment offset files into the journal", files.length);
+    }
+
+    @Override
+    public void remove(Optional<UUID> nodeId, long segment) {
+        ensureOpen();
+        segmentOffsets.remove(segment);
+        try {
+            synchronized (this) {
+                if (journaledOffsets.containsKey(segment))
+                    append(segment, REMOVED);
+            }
+        } catch (IOException e) {
+            log.error("Failed to remove the offset of segment " + segment, e);
+        }
+    }
+
+    @Override
+    public void remove(Optional<UUID> nodeId) {
+        ensureOpen();
+        segmentOffsets.clear();
+        try {
+            synchronized (this) {
+                journaledOffsets.clear();
+                compact();
+            }
+        } catch (IOException e) {
+            log.error("Failed to clear the offsets journal", e);
+        }
+    }
+
+    private synchronized void append(long segment, int position) throws IOException {
+        ensureOpen();
+        if (writeIndex == capacity)
+            compact();
+        int offset = writeIndex * RECORD_SIZE;
+        buffer.putLong(offset, segment);
+        buffer.putInt(offset + 8, position);
+        buffer.putInt(offset + 12, checksum(segment, position));
+        writeIndex++;
+        dirty = true;
+        if (position == REMOVED) {
+            journaledOffsets.remove(segment);
+        } else {
+            journaledOffsets.put(segment, position);
+        }
+    }
+
+    /**
+     * Rewrite the live segment offsets into a new journal, growing it if more than half full.
+     * The new journal is fsynced before atomically replacing the current one.
+     */
+    private void compact() throws IOException {
+        int newCapacity = journaledOffsets.size() * 2 > capacity ? capacity * 2 : capacity;
+        Path tmpPath = new File(cdcLogDir, JOURNAL_FILE + ".tmp").toPath();
+        Files.deleteIfExists(tmpPath);
+        try (FileChannel tmpChannel = FileChannel.open(tmpPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer tmpBuffer = tmpChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) newCapacity * RECORD_SIZE);
+            int offset = 0;
+            for (Map.Entry<Long, Integer> entry : journaledOffsets.entrySet()) {
+                tmpBuffer.putLong(offset, entry.getKey());
+                tmpBuffer.putInt(offset + 8, entry.getValue());
+                tmpBuffer.putInt(offset + 12, checksum(entry.getKey(), entry.getValue()));
+                offset += RECORD_SIZE;
+            }
+            tmpBuffer.force();
+        }
+        Files.move(tmpPath, journalPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.debug("Compacted offsets journal, live segments={} capacity={}", journaledOffsets.size(), newCapacity);
+        this.capacity = newCapacity;
+        map(journalPath());
+        this.writeIndex = journaledOffsets.size();
+        this.dirty = false;
+    }
+
+    private int checksum(long segment, int position) {
+        for (int i = 0; i < 8; i++)
+            recordBytes[i] = (byte) (segment >>> (56 - 8 * i));
+        for (int i = 0; i < 4; i++)
+            recordBytes[8 + i] = (byte) (position >>> (24 - 8 * i));
+        crc32.reset();
+        crc32.update(recordBytes, 0, recordBytes.length);
+        return (int) crc32.getValue();
+    }
+}
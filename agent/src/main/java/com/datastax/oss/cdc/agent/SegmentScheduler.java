@@ -0,0 +1,213 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules the commitlog processing tasks, at most one running task per segment.
+ * <p>
+ * Each segment holds a running task and at most one pending task: a new task for a segment
+ * supersedes its pending task, so rapid idx updates of a segment are coalesced while a task runs.
+ * Pending segments are started oldest first, up to the number of processors, and the number of
+ * pending tasks is bounded, blocking the submitter when exhausted.
+ * Uncompleted segments are kept ordered for cleanup once a newer segment shows up.
+ */
+@Slf4j
+public class SegmentScheduler {
+
+    static class SegmentTasks {
+        CommitLogReaderService.Task running;
+        CommitLogReaderService.Task pending;
+    }
+
+    private final Map<Long, SegmentTasks> segments = new HashMap<>();
+
+    /**
+     * Segments having a pending task and no running task, oldest first.
+     */
+    private final PriorityQueue<Long> readySegments = new PriorityQueue<>();
+
+    /**
+     * Uncompleted segments task for delayed task cleanup, ordered by segment.
+     */
+    private final TreeMap<Long, CommitLogReaderService.Task> uncleanedTasks = new TreeMap<>();
+
+    private Executor executor;
+    private int maxRunningTasks = 1;
+    private int maxPendingTasks = Integer.MAX_VALUE;
+
+    private int runningTasks = 0;
+    private int pendingTasks = 0;
+
+    final AtomicInteger maxRunningTasksReached = new AtomicInteger(0);
+    final AtomicInteger maxPendingTasksReached = new AtomicInteger(0);
+    final AtomicInteger maxUncleanedTasksReached = new AtomicInteger(0);
+    final AtomicLong coalescedTasks = new AtomicLong(0);
+    final AtomicLong blockedNanos = new AtomicLong(0);
+
+    /**
+     * @param executor the executor running the tasks
+     * @param maxRunningTasks the max number of concurrently running tasks
+     * @param maxPendingTasks the max number of pending tasks
+     */
+    public synchronized void configure(Executor executor, int maxRunningTasks, int maxPendingTasks) {
+        this.executor = executor;
+        this.maxRunningTasks = maxRunningTasks;
+        this.maxPendingTasks = maxPendingTasks;
+    }
+
+    public synchronized int runningTasks() {
+        return runningTasks;
+    }
+
+    public synchronized int pendingTasks() {
+        return pendingTasks;
+    }
+
+    public synchronized int uncleanedTasks() {
+        return uncleanedTasks.size();
+    }
+
+    public long coalescedTasks() {
+        return coalescedTasks.get();
+    }
+
+    public long blockedTimeMs() {
+        return blockedNanos.get() / 1_000_000;
+    }
+
+    /**
+     * @return the running task of the segment or null.
+     */
+    public synchronized CommitLogReaderService.Task runningTask(long segment) {
+        SegmentTasks segmentTasks = segments.get(segment);
+        return segmentTasks == null ? null : segmentTasks.running;
+    }
+
+    /**
+     * Submit a task, superseding the pending task of the same segment if any.
+     * Blocks while the max number of pending tasks is reached.
+     */
+    public synchronized void submit(CommitLogReaderService.Task task) throws InterruptedException {
+        long start = 0;
+        SegmentTasks segmentTasks;
+        while (true) {
+            segmentTasks = segments.get(task.segment);
+            if (segmentTasks != null && segmentTasks.pending != null) {
+                log.debug("Coalescing task={} with pending task={}", task, segmentTasks.pending);
+                if (task.completed || task.syncPosition >= segmentTasks.pending.syncPosition) {
+                    segmentTasks.pending = task;
+                }
+                coalescedTasks.incrementAndGet();
+                break;
+            }
+            if (pendingTasks < maxPendingTasks) {
+                if (segmentTasks == null) {
+                    segmentTasks = new SegmentTasks();
+                    segments.put(task.segment, segmentTasks);
+                }
+                segmentTasks.pending = task;
+                pendingTasks++;
+                maxPendingTasksReached.getAndAccumulate(pendingTasks, Math::max);
+                if (segmentTasks.running == null) {
+                    readySegments.add(task.segment);
+                }
+                // the new task takes over the cleanup of the segment
+                uncleanedTasks.remove(task.segment);
+                break;
+            }
+            if (start == 0) {
+                start = System.nanoTime();
+            }
+            wait();
+        }
+        if (start != 0) {
+            blockedNanos.addAndGet(System.nanoTime() - start);
+        }
+        dispatch();
+    }
+
+    /**
+     * Release the segment of a finished task and start the next pending tasks.
+     * @param task the finished task
+     * @param retry true to run the task again if no other task is pending for its segment
+     * @return true if the task segment must be cleaned up
+     */
+    public synchronized boolean finish(CommitLogReaderService.Task task, boolean retry) {
+        SegmentTasks segmentTasks = segments.get(task.segment);
+        boolean cleanup = false;
+        if (segmentTasks != null && segmentTasks.running == task) {
+            segmentTasks.running = null;
+            runningTasks--;
+            if (retry && segmentTasks.pending == null) {
+                segmentTasks.pending = task;
+                pendingTasks++;
+            }
+            if (segmentTasks.pending != null) {
+                readySegments.add(task.segment);
+            } else {
+                segments.remove(task.segment);
+                if (task.completed) {
+                    uncleanedTasks.remove(task.segment);
+                    cleanup = true;
+                } else {
+                    // task will be cleaned up when processing the next segment
+                    uncleanedTasks.put(task.segment, task);
+                    maxUncleanedTasksReached.getAndAccumulate(uncleanedTasks.size(), Math::max);
+                }
+            }
+        }
+        dispatch();
+        return cleanup;
+    }
+
+    /**
+     * Remove the uncleaned tasks of the segments older than lastSegment.
+     * @param lastSegment the last segment id
+     * @return the tasks to cleanup
+     */
+    public synchronized List<CommitLogReaderService.Task> pollUncleanedTasks(long lastSegment) {
+        List<CommitLogReaderService.Task> tasks = new ArrayList<>();
+        while (!uncleanedTasks.isEmpty() && uncleanedTasks.firstKey() < lastSegment) {
+            tasks.add(uncleanedTasks.pollFirstEntry().getValue());
+        }
+        return tasks;
+    }
+
+    private void dispatch() {
+        while (runningTasks < maxRunningTasks && !readySegments.isEmpty()) {
+            SegmentTasks segmentTasks = segments.get(readySegments.poll());
+            segmentTasks.running = segmentTasks.pending;
+            segmentTasks.pending = null;
+            pendingTasks--;
+            runningTasks++;
+            maxRunningTasksReached.getAndAccumulate(runningTasks, Math::max);
+            executor.execute(segmentTasks.running);
+        }
+        notifyAll();
+    }
+}
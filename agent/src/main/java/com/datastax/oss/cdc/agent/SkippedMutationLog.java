@@ -0,0 +1,152 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Local hint log of the mutations skipped by a non-primary replica, replayed after the fallback delay
+ * if the local node should then emit them, when the primary replica went down or the token range started moving.
+ *
+ * Skipped mutations do not hold their in-flight resources, so the checkpoints pass their positions
+ * and the hints are lost on restart. When the log is full, the oldest hint is replayed before its delay.
+ * Mutations emitted by both replicas are removed by the connector deduplication.
+ */
+@Slf4j
+public class SkippedMutationLog {
+
+    /**
+     * Default maximum number of hints kept in memory.
+     */
+    static final int MAX_HINTS = 1 << 16;
+
+    static class Hint {
+        final long deadline;
+        final BooleanSupplier shouldEmit;
+        final Runnable replay;
+
+        Hint(long deadline, BooleanSupplier shouldEmit, Runnable replay) {
+            this.deadline = deadline;
+            this.shouldEmit = shouldEmit;
+            this.replay = replay;
+        }
+    }
+
+    final AtomicLong skippedMutations;
+    final int maxHints;
+    volatile long delayMs;
+
+    /**
+     * Hints ordered by deadline, as the delay is constant, guarded by this.
+     */
+    final ArrayDeque<Hint> hints = new ArrayDeque<>();
+
+    ScheduledExecutorService scheduler;
+
+    public SkippedMutationLog(AtomicLong skippedMutations) {
+        this(skippedMutations, MAX_HINTS);
+    }
+
+    SkippedMutationLog(AtomicLong skippedMutations, int maxHints) {
+        this.skippedMutations = skippedMutations;
+        this.maxHints = maxHints;
+    }
+
+    public void setDelayMs(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    /**
+     * Periodically replay the hints whose delay has elapsed.
+     */
+    public synchronized void start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "CdcSkippedMutationLog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(10L, delayMs / 10);
+            scheduler.scheduleWithFixedDelay(() -> expire(System.currentTimeMillis()), period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Record a mutation skipped by the local node.
+     * @param shouldEmit true if the local node should emit the mutation after the delay
+     * @param replay emits the mutation
+     */
+    public void skip(BooleanSupplier shouldEmit, Runnable replay) {
+        Hint hint = new Hint(System.currentTimeMillis() + delayMs, shouldEmit, replay);
+        Hint evicted;
+        synchronized (this) {
+            hints.add(hint);
+            evicted = hints.size() > maxHints ? hints.poll() : null;
+        }
+        if (evicted != null)
+            replay(evicted);
+    }
+
+    /**
+     * Replay the hints whose deadline has passed.
+     * @param now the current time in milliseconds
+     */
+    public void expire(long now) {
+        List<Hint> expired = new ArrayList<>();
+        synchronized (this) {
+            Hint hint;
+            while ((hint = hints.peek()) != null && hint.deadline <= now)
+                expired.add(hints.poll());
+        }
+        for (Hint hint : expired)
+            replay(hint);
+    }
+
+    void replay(Hint hint) {
+        try {
+            if (hint.shouldEmit.getAsBoolean()) {
+                hint.replay.run();
+            } else {
+                skippedMutations.incrementAndGet();
+            }
+        } catch (Throwable t) {
+            log.warn("Failed to replay a skipped mutation:", t);
+        }
+    }
+
+    /**
+     * @return the number of hints waiting for their delay
+     */
+    public synchronized int size() {
+        return hints.size();
+    }
+
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
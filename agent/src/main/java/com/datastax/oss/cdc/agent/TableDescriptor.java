@@ -0,0 +1,173 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import com.datastax.oss.cdc.ColumnBitmap;
+import com.datastax.oss.cdc.MutationValue;
+import lombok.ToString;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.common.schema.KeyValue;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Per-table descriptor shared by all the mutations of a table, precompiled once per table schema.
+ * The table key and primary key columns are immutable, the key schema and producer are resolved once by the mutation sender.
+ * @param <T> the table metadata type
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class TableDescriptor<T> implements TableInfo {
+
+    /**
+     * Table descriptors by table id.
+     */
+    static final ConcurrentMap<Object, TableDescriptor<?>> descriptors = new ConcurrentHashMap<>();
+
+    /**
+     * Schema version of the cached descriptors.
+     */
+    static volatile Object schemaVersion;
+
+    final T metadata;
+    @ToString.Include
+    final String keyspace;
+    @ToString.Include
+    final String name;
+    final String key;
+    final List<ColumnInfo> primaryKeyColumns;
+
+    /**
+     * True when all the primary key columns can be AVRO encoded from their serialized Cassandra values,
+     * the commitlog reader then keeps the primary key values serialized.
+     */
+    final boolean serializedPkValues;
+
+    /**
+     * Regular and static column indexes in the mutation column bitmaps, and the bitmap schema version.
+     */
+    final Map<String, Integer> columnIndexes;
+    final int columnBitmapVersion;
+
+    /**
+     * Resolved by the mutation sender.
+     */
+    volatile Boolean supported;
+    volatile AbstractPulsarMutationSender.SchemaAndWriter keySchema;
+    volatile Producer<KeyValue<byte[], MutationValue>> producer;
+
+    public TableDescriptor(T metadata, String keyspace, String name, List<ColumnInfo> primaryKeyColumns, Collection<String> columnNames) {
+        this.metadata = metadata;
+        this.keyspace = keyspace;
+        this.name = name;
+        this.key = keyspace + "." + name;
+        this.primaryKeyColumns = Collections.unmodifiableList(primaryKeyColumns);
+        boolean serialized = true;
+        for (ColumnInfo columnInfo : primaryKeyColumns) {
+            serialized &= AvroValueCodec.forCql3Type(columnInfo.cql3Type()) != null;
+        }
+        this.serializedPkValues = serialized;
+        List<String> orderedColumns = ColumnBitmap.orderedColumns(columnNames);
+        Map<String, Integer> indexes = new HashMap<>();
+        for (String column : orderedColumns) {
+            indexes.put(column, indexes.size());
+        }
+        this.columnIndexes = indexes;
+        this.columnBitmapVersion = ColumnBitmap.version(orderedColumns);
+    }
+
+    /**
+     * Get the table descriptor, or build a new one when the table schema has changed.
+     * Depending on the Cassandra version, table metadata are either updated in place or replaced by a new instance
+     * on schema change, so all the descriptors are dropped when the schema version changes, including the
+     * descriptors of the dropped tables.
+     * @param tableId the table id
+     * @param metadata the table metadata
+     * @param version the current schema version
+     * @param builder the descriptor builder
+     * @return the table descriptor
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> TableDescriptor<T> get(Object tableId, T metadata, Object version, Function<T, TableDescriptor<T>> builder) {
+        if (!Objects.equals(schemaVersion, version)) {
+            synchronized (descriptors) {
+                if (!Objects.equals(schemaVersion, version)) {
+                    descriptors.clear();
+                    schemaVersion = version;
+                }
+            }
+        }
+        TableDescriptor<T> descriptor = (TableDescriptor<T>) descriptors.get(tableId);
+        if (descriptor == null || descriptor.metadata != metadata) {
+            descriptor = builder.apply(metadata);
+            descriptors.put(tableId, descriptor);
+        }
+        return descriptor;
+    }
+
+    public T metadata() {
+        return metadata;
+    }
+
+    public boolean serializedPkValues() {
+        return serializedPkValues;
+    }
+
+    /**
+     * @param column a regular or static column name
+     * @return the column index in the column bitmaps, or -1 if unknown
+     */
+    public int columnIndex(String column) {
+        Integer index = columnIndexes.get(column);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param columns the indexes of the written columns
+     * @return the encoded column bitmap
+     */
+    public byte[] columnBitmap(BitSet columns) {
+        return ColumnBitmap.encode(columnBitmapVersion, columns);
+    }
+
+    @Override
+    public String key() {
+        return key;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String keyspace() {
+        return keyspace;
+    }
+
+    @Override
+    public List<ColumnInfo> primaryKeyColumns() {
+        return primaryKeyColumns;
+    }
+}
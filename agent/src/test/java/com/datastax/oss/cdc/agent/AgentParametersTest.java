@@ -34,6 +34,10 @@ public class AgentParametersTest {
                     CDC_DIR_POLL_INTERVAL_MS + "=1234," +
                     CDC_CONCURRENT_PROCESSORS + "=5," +
                     MAX_INFLIGHT_MESSAGES_PER_TASK + "=50," +
+                    MAX_INFLIGHT_BYTES + "=1048576," +
+                    PRIMARY_REPLICA_ONLY + "=true," +
+                    PRIMARY_REPLICA_FALLBACK_DELAY_MS + "=5000," +
+                    ROW_IMAGE_TABLES + "=ks1.table1\\,ks1.table2," +
                     TOPIC_PREFIX + "=events-mutations," +
                     SSL_TRUSTSTORE_PATH + "=/truststore.jks," +
                     TLS_TRUST_CERTS_FILE_PATH + "=/truststore.p12," +
@@ -52,6 +56,10 @@ public class AgentParametersTest {
         assertEquals(1234L, config.cdcDirPollIntervalMs);
         assertEquals(5, config.cdcConcurrentProcessors);
         assertEquals(50, config.maxInflightMessagesPerTask);
+        assertEquals(1048576L, config.maxInflightBytes);
+        assertEquals(true, config.primaryReplicaOnly);
+        assertEquals(5000L, config.primaryReplicaFallbackDelayMs);
+        assertEquals("ks1.table1,ks1.table2", config.rowImageTables);
         assertEquals("events-mutations", config.topicPrefix);
 
         // common TLS settings
@@ -120,6 +128,12 @@ public class AgentParametersTest {
         assertEquals(false, config.useKeyStoreTls);
     }
 
+    @Test
+    public void testInflightBytesDisabledByDefault() {
+        AgentConfig config = AgentConfig.create(Platform.PULSAR, new HashMap<>());
+        assertEquals(0L, config.maxInflightBytes);
+    }
+
     @Test
     @SetEnvironmentVariable(key = "CDC_PULSAR_SERVICE_URL", value = "pulsar+ssl://mypulsar:6650,localhost:6651,localhost:6652")
     @SetEnvironmentVariable(key = "CDC_PULSAR_AUTH_PLUGIN_CLASS_NAME", value = "MyAuthPlugin")
@@ -178,6 +192,7 @@ public class AgentParametersTest {
     @SetEnvironmentVariable(key = "CDC_ERROR_COMMITLOG_REPROCESS_ENABLED", value = "true")
     @SetEnvironmentVariable(key = "CDC_TOPIC_PREFIX", value = "myevents-")
     @SetEnvironmentVariable(key = "CDC_MAX_INFLIGHT_MESSAGES_PER_TASK", value = "55")
+    @SetEnvironmentVariable(key = "CDC_MAX_INFLIGHT_BYTES", value = "2097152")
     public void testConfigureCdcFromEnvVar() {
         AgentConfig config = AgentConfig.create(Platform.PULSAR, "");
         assertEquals("toto/cdc2", config.cdcWorkingDir);
@@ -185,6 +200,7 @@ public class AgentParametersTest {
         assertEquals(16, config.cdcConcurrentProcessors);
         assertEquals(true, config.errorCommitLogReprocessEnabled);
         assertEquals(55, config.maxInflightMessagesPerTask);
+        assertEquals(2097152L, config.maxInflightBytes);
     }
 
     @Test
@@ -0,0 +1,127 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import com.datastax.oss.cdc.CqlLogicalTypes;
+import org.apache.avro.Conversions;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AvroKeyEncoderTest {
+
+    static final Schema keySchema = SchemaBuilder.record("ks.table").fields()
+            .requiredString("a")
+            .requiredInt("b")
+            .optionalLong("c")
+            .endRecord();
+
+    static byte[] encodeGenericRecord(Object a, Object b, Object c) throws Exception {
+        GenericRecord genericRecord = new GenericData.Record(keySchema);
+        genericRecord.put("a", a);
+        genericRecord.put("b", b);
+        genericRecord.put("c", c);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        BinaryEncoder binaryEncoder = new EncoderFactory().binaryEncoder(byteArrayOutputStream, null);
+        new SpecificDatumWriter<GenericRecord>(keySchema).write(genericRecord, binaryEncoder);
+        binaryEncoder.flush();
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    @Test
+    public void testEncode() throws Exception {
+        AvroKeyEncoder encoder = new AvroKeyEncoder(keySchema);
+        assertArrayEquals(encodeGenericRecord("a1", 1, 2L), encoder.encode(new Object[] {"a1", 1, 2L}, (name, value) -> value));
+        assertArrayEquals(encodeGenericRecord("a2", 3, null), encoder.encode(new Object[] {"a2", 3, null}, (name, value) -> value));
+    }
+
+    @Test
+    public void testConverter() throws Exception {
+        AvroKeyEncoder encoder = new AvroKeyEncoder(keySchema);
+        assertArrayEquals(encodeGenericRecord("a", 1, 2L),
+                encoder.encode(new Object[] {"x", 0, 0L}, (name, value) -> name.equals("a") ? "a" : name.equals("b") ? 1 : 2L));
+    }
+
+    static ColumnInfo column(String name, String cql3Type, boolean isClusteringKey) {
+        return new ColumnInfo() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public String cql3Type() {
+                return cql3Type;
+            }
+
+            @Override
+            public boolean isClusteringKey() {
+                return isClusteringKey;
+            }
+        };
+    }
+
+    @Test
+    public void testEncodeSerializedValues() throws Exception {
+        SpecificData.get().addLogicalTypeConversion(new Conversions.UUIDConversion());
+        Schema schema = SchemaBuilder.record("ks.table2").fields()
+                .name("id").type().intType().noDefault()
+                .name("name").type().stringType().noDefault()
+                .name("u").type(CqlLogicalTypes.uuidType).noDefault()
+                .name("ts").type().unionOf().nullType().and().type(CqlLogicalTypes.timestampMillisType).endUnion().noDefault()
+                .name("d").type().unionOf().nullType().and().type(CqlLogicalTypes.dateType).endUnion().noDefault()
+                .endRecord();
+        AvroKeyEncoder encoder = new AvroKeyEncoder(schema, Arrays.asList(
+                column("id", "int", false),
+                column("name", "text", false),
+                column("u", "uuid", false),
+                column("ts", "timestamp", true),
+                column("d", "date", true)));
+        assertTrue(encoder.supportsSerializedValues());
+
+        UUID uuid = UUID.randomUUID();
+        ByteBuffer uuidBytes = ByteBuffer.allocate(16);
+        uuidBytes.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).flip();
+        ByteBuffer[] serialized = new ByteBuffer[] {
+                ByteBuffer.allocate(4).putInt(0, 42),
+                ByteBuffer.wrap("foo".getBytes(StandardCharsets.UTF_8)),
+                uuidBytes,
+                ByteBuffer.allocate(8).putLong(0, 1234567L),
+                ByteBuffer.allocate(4).putInt(0, Integer.MIN_VALUE + 10)
+        };
+        assertArrayEquals(encoder.encode(new Object[] {42, "foo", uuid, 1234567L, 10}, (name, value) -> value),
+                encoder.encode(serialized));
+
+        serialized[4] = null;
+        assertArrayEquals(encoder.encode(new Object[] {42, "foo", uuid, 1234567L, null}, (name, value) -> value),
+                encoder.encode(serialized));
+    }
+}
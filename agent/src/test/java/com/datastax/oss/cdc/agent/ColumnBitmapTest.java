@@ -0,0 +1,47 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import com.datastax.oss.cdc.ColumnBitmap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ColumnBitmapTest {
+
+    @Test
+    public void testEncodeDecode() {
+        TableDescriptor<Object> descriptor = new TableDescriptor<>(new Object(), "ks", "table",
+                Collections.emptyList(), Arrays.asList("c", "a", "b"));
+        assertEquals(0, descriptor.columnIndex("a"));
+        assertEquals(2, descriptor.columnIndex("c"));
+        assertEquals(-1, descriptor.columnIndex("d"));
+
+        BitSet columns = new BitSet();
+        columns.set(descriptor.columnIndex("c"));
+        byte[] bitmap = descriptor.columnBitmap(columns);
+
+        int version = ColumnBitmap.version(ColumnBitmap.orderedColumns(Arrays.asList("b", "c", "a")));
+        assertEquals(columns, ColumnBitmap.decode(bitmap, version));
+        assertNull(ColumnBitmap.decode(bitmap, ColumnBitmap.version(Arrays.asList("a", "b"))));
+        assertNull(ColumnBitmap.decode(null, version));
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CommitLogEventQueueTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testCoalescing() {
+        AtomicLong coalesced = new AtomicLong();
+        CommitLogEventQueue queue = new CommitLogEventQueue(coalesced);
+        queue.add(new File("CommitLog-7-3_cdc.idx"));
+        queue.add(new File("CommitLog-7-1_cdc.idx"));
+        queue.add(new File("CommitLog-7-3_cdc.idx"));
+        queue.add(new File("CommitLog-7-2_cdc.idx"));
+        queue.add(new File("CommitLog-7-1_cdc.idx"));
+        assertEquals(3, queue.size());
+        assertEquals(2, coalesced.get());
+
+        List<File> files = queue.drain();
+        assertEquals("CommitLog-7-1_cdc.idx", files.get(0).getName());
+        assertEquals("CommitLog-7-2_cdc.idx", files.get(1).getName());
+        assertEquals("CommitLog-7-3_cdc.idx", files.get(2).getName());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testReadCdcIndex() throws Exception {
+        CommitLogReaderService service = SegmentSchedulerTest.service;
+        File idx = tempDir.resolve("CommitLog-7-1_cdc.idx").toFile();
+
+        Files.write(idx.toPath(), "1234\n".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(1234, service.readCdcIndex(idx));
+        assertFalse(service.isCdcIndexCompleted());
+
+        Files.write(idx.toPath(), "33554432\nCOMPLETED\n".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(33554432, service.readCdcIndex(idx));
+        assertTrue(service.isCdcIndexCompleted());
+
+        Files.write(idx.toPath(), new byte[0]);
+        assertEquals(-1, service.readCdcIndex(idx));
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InflightBudgetTest {
+
+    @Test
+    public void testAcquireRelease() {
+        InflightBudget budget = new InflightBudget(100);
+        budget.acquireUninterruptibly(1, 60);
+        budget.acquireUninterruptibly(1, 40);
+        assertEquals(100, budget.bytesInFlight());
+        budget.release(100);
+        assertEquals(0, budget.bytesInFlight());
+
+        // oversized message admitted when nothing is in-flight
+        budget.acquireUninterruptibly(1, 500);
+        assertEquals(500, budget.bytesInFlight());
+        budget.release(500);
+        assertEquals(0, budget.blockedAcquisitions());
+    }
+
+    @Test
+    public void testOldestSegmentFirst() throws Exception {
+        InflightBudget budget = new InflightBudget(100);
+        budget.acquireUninterruptibly(1, 100);
+
+        List<Long> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        Thread newer = new Thread(() -> {
+            budget.acquireUninterruptibly(3, 100);
+            synchronized (order) { order.add(3L); }
+            budget.release(100);
+            done.countDown();
+        });
+        newer.start();
+        waitForBlocked(budget, newer);
+        Thread older = new Thread(() -> {
+            budget.acquireUninterruptibly(2, 100);
+            synchronized (order) { order.add(2L); }
+            budget.release(100);
+            done.countDown();
+        });
+        older.start();
+        waitForBlocked(budget, older);
+
+        budget.release(100);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2L, order.get(0));
+        assertEquals(3L, order.get(1));
+        assertEquals(2, budget.blockedAcquisitions());
+        assertEquals(0, budget.bytesInFlight());
+    }
+
+    static void waitForBlocked(InflightBudget budget, Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PartitionOrderedExecutorTest {
+
+    @Test
+    public void testLaneOrdering() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            PartitionOrderedExecutor executor = new PartitionOrderedExecutor(executorService, 8, 64);
+            List<List<Integer>> processed = new ArrayList<>();
+            for (int token = 0; token < 16; token++)
+                processed.add(Collections.synchronizedList(new ArrayList<>()));
+            for (int i = 0; i < 1000; i++) {
+                final int token = i % 16;
+                final int entry = i;
+                executor.submit(token, () -> processed.get(token).add(entry));
+            }
+            executor.await();
+            for (int token = 0; token < 16; token++) {
+                List<Integer> entries = processed.get(token);
+                assertEquals(1000 / 16 + (token < 1000 % 16 ? 1 : 0), entries.size());
+                for (int i = 1; i < entries.size(); i++)
+                    assertTrue(entries.get(i - 1) < entries.get(i), "token=" + token + " entries=" + entries);
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueueBound() throws Exception {
+        // lanes are only run on demand
+        ConcurrentLinkedQueue<Runnable> scheduled = new ConcurrentLinkedQueue<>();
+        PartitionOrderedExecutor executor = new PartitionOrderedExecutor(scheduled::add, 2, 4);
+        AtomicInteger processed = new AtomicInteger();
+        for (int i = 0; i < 4; i++)
+            executor.submit(i, processed::incrementAndGet);
+
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            executor.submit(0, processed::incrementAndGet);
+            submitted.countDown();
+        });
+        producer.start();
+        assertFalse(submitted.await(200, TimeUnit.MILLISECONDS), "submit should block when the queue is full");
+
+        Runnable lane;
+        while ((lane = scheduled.poll()) != null)
+            lane.run();
+        assertTrue(submitted.await(1, TimeUnit.SECONDS));
+        producer.join();
+        while ((lane = scheduled.poll()) != null)
+            lane.run();
+        executor.await();
+        assertEquals(5, processed.get());
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        ConcurrentLinkedQueue<Runnable> scheduled = new ConcurrentLinkedQueue<>();
+        PartitionOrderedExecutor executor = new PartitionOrderedExecutor(scheduled::add, 2, 16);
+        AtomicInteger processed = new AtomicInteger();
+        executor.submit(0, () -> {
+            throw new IllegalStateException("send failed");
+        });
+        executor.submit(0, processed::incrementAndGet);
+        executor.submit(1, processed::incrementAndGet);
+        // the failed entry runs first
+        scheduled.poll().run();
+        Runnable lane;
+        while ((lane = scheduled.poll()) != null)
+            lane.run();
+
+        // no entry started after the failure
+        assertEquals(0, processed.get());
+        assertThrows(RuntimeException.class, () -> executor.submit(1, processed::incrementAndGet));
+        assertThrows(IllegalStateException.class, executor::await);
+    }
+
+    @Test
+    public void testAbort() throws Exception {
+        ConcurrentLinkedQueue<Runnable> scheduled = new ConcurrentLinkedQueue<>();
+        PartitionOrderedExecutor executor = new PartitionOrderedExecutor(scheduled::add, 2, 16);
+        AtomicInteger processed = new AtomicInteger();
+        executor.submit(0, processed::incrementAndGet);
+        executor.submit(1, processed::incrementAndGet);
+        executor.abort(new IllegalStateException("read failed"));
+        Runnable lane;
+        while ((lane = scheduled.poll()) != null)
+            lane.run();
+        assertEquals(0, processed.get());
+        assertThrows(IllegalStateException.class, executor::await);
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PrimaryReplicaFilterTest {
+
+    /**
+     * Ring of 3 nodes, the primary replica of the token t is the node t % 3.
+     */
+    static class TestFilter extends AbstractPrimaryReplicaFilter<Integer, Integer> {
+        final Set<Integer> pending = new HashSet<>();
+        final Set<Integer> down = new HashSet<>();
+
+        TestFilter(AgentConfig config) {
+            super(config, new AtomicLong(0));
+        }
+
+        @Override
+        protected Integer localEndpoint() {
+            return 0;
+        }
+
+        @Override
+        protected Integer primaryReplica(String keyspace, Integer token) {
+            return token % 3;
+        }
+
+        @Override
+        protected boolean hasPendingReplicas(String keyspace, Integer token) {
+            return pending.contains(token);
+        }
+
+        @Override
+        protected boolean isAlive(Integer endpoint) {
+            return !down.contains(endpoint);
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        TestFilter filter = new TestFilter(new AgentConfig());
+        for (int token = 0; token < 6; token++) {
+            assertTrue(filter.shouldEmit("ks", token));
+        }
+        assertEquals(0, filter.fallbackMutations.get());
+    }
+
+    @Test
+    public void testPrimaryReplicaOnly() {
+        AgentConfig config = new AgentConfig();
+        config.primaryReplicaOnly = true;
+        TestFilter filter = new TestFilter(config);
+        assertTrue(filter.shouldEmit("ks", 3));
+        assertFalse(filter.shouldEmit("ks", 4));
+        assertFalse(filter.shouldEmit("ks", 5));
+        assertEquals(0, filter.fallbackMutations.get());
+
+        filter.pending.add(4);
+        assertTrue(filter.shouldEmit("ks", 4));
+        assertEquals(1, filter.fallbackMutations.get());
+    }
+
+    @Test
+    public void testPrimaryReplicaDown() {
+        AgentConfig config = new AgentConfig();
+        config.primaryReplicaOnly = true;
+        TestFilter filter = new TestFilter(config);
+        filter.down.add(1);
+        assertTrue(filter.shouldEmit("ks", 1));
+        assertFalse(filter.shouldEmit("ks", 2));
+        assertEquals(1, filter.fallbackMutations.get());
+
+        // back online
+        filter.down.clear();
+        assertFalse(filter.shouldEmit("ks", 1));
+    }
+}
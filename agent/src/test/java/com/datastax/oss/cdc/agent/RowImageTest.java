@@ -0,0 +1,45 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import com.datastax.oss.cdc.RowImage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RowImageTest {
+
+    @Test
+    public void testEncodeDecode() {
+        RowImage rowImage = new RowImage(4);
+        rowImage.add(0, ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8)));
+        rowImage.add(2, null);
+        rowImage.add(3, ByteBuffer.allocate(0));
+
+        Map<Integer, ByteBuffer> values = RowImage.decode(rowImage.toByteArray());
+        assertEquals(3, values.size());
+        assertEquals("hello", StandardCharsets.UTF_8.decode(values.get(0)).toString());
+        assertTrue(values.containsKey(2));
+        assertNull(values.get(2));
+        assertEquals(0, values.get(3).remaining());
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SegmentAckTrackerTest {
+
+    @Test
+    public void testOutOfOrderAcks() {
+        SegmentAckTracker tracker = new SegmentAckTracker(2);
+        for (int position = 10; position <= 50; position += 10) {
+            tracker.register(position);
+            tracker.retain(position);
+            tracker.release(position);
+        }
+        assertEquals(-1, tracker.watermark());
+        assertEquals(5, tracker.size());
+
+        tracker.release(30);
+        tracker.release(20);
+        assertEquals(-1, tracker.watermark());
+        tracker.release(10);
+        assertEquals(30, tracker.watermark());
+        tracker.release(50);
+        assertEquals(30, tracker.watermark());
+        tracker.release(40);
+        assertEquals(50, tracker.watermark());
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void testEntryWithoutMutation() {
+        SegmentAckTracker tracker = new SegmentAckTracker(4);
+        tracker.register(10);
+        tracker.retain(10);
+        tracker.register(20);
+        tracker.release(20);
+        tracker.release(10);
+        assertEquals(-1, tracker.watermark());
+        tracker.release(10);
+        assertEquals(20, tracker.watermark());
+    }
+
+    @Test
+    public void testInvalidPositions() {
+        SegmentAckTracker tracker = new SegmentAckTracker(4);
+        tracker.register(10);
+        assertThrows(IllegalArgumentException.class, () -> tracker.register(10));
+        assertThrows(IllegalStateException.class, () -> tracker.retain(5));
+        tracker.clear();
+        tracker.register(10);
+        assertEquals(1, tracker.size());
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SegmentOffsetJournalWriterTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSegmentOffsetJournalWriter() throws Exception {
+        long seg1 = 12345671L;
+        long seg2 = 12345672L;
+        long seg3 = 12345673L;
+        try (SegmentOffsetJournalWriter writer = new SegmentOffsetJournalWriter(tempDir.toString(), 4, 0)) {
+            writer.loadOffsets();
+            // overflow the journal capacity to trigger compactions
+            for (int i = 1; i <= 10; i++) {
+                writer.position(Optional.empty(), seg1, i);
+                writer.flush(Optional.empty(), seg1);
+            }
+            writer.position(Optional.empty(), seg2, 4);
+            writer.flush(Optional.empty(), seg2);
+            writer.position(Optional.empty(), seg3, 5);
+            writer.flush(Optional.empty(), seg3);
+            writer.remove(Optional.empty(), seg3);
+        }
+
+        try (SegmentOffsetJournalWriter reader = new SegmentOffsetJournalWriter(tempDir.toString(), 4, 0)) {
+            reader.loadOffsets();
+            assertEquals(10, reader.position(Optional.empty(), seg1));
+            assertEquals(4, reader.position(Optional.empty(), seg2));
+            assertEquals(0, reader.position(Optional.empty(), seg3));
+        }
+    }
+
+    @Test
+    public void testMigrateOffsetFiles() throws Exception {
+        File offsetFile = tempDir.resolve("12345671" + SegmentOffsetFileWriter.COMMITLOG_OFFSET_FILE_SUFFIX).toFile();
+        Files.write(offsetFile.toPath(), "1234".getBytes(StandardCharsets.UTF_8));
+        try (SegmentOffsetJournalWriter writer = new SegmentOffsetJournalWriter(tempDir.toString(), 4, 0)) {
+            writer.loadOffsets();
+            assertEquals(1234, writer.position(Optional.empty(), 12345671L));
+            assertFalse(offsetFile.exists());
+        }
+        try (SegmentOffsetJournalWriter reader = new SegmentOffsetJournalWriter(tempDir.toString(), 4, 0)) {
+            reader.loadOffsets();
+            assertEquals(1234, reader.position(Optional.empty(), 12345671L));
+        }
+    }
+
+    @Test
+    public void testClosed() throws Exception {
+        SegmentOffsetJournalWriter writer = new SegmentOffsetJournalWriter(tempDir.toString(), 4, 0);
+        writer.loadOffsets();
+        writer.position(Optional.empty(), 12345671L, 1);
+        writer.close();
+        writer.close();
+        // the mapped buffer of a closed journal must not be written
+        assertThrows(IllegalStateException.class, () -> writer.flush(Optional.empty(), 12345671L));
+        assertThrows(IllegalStateException.class, () -> writer.remove(Optional.empty(), 12345671L));
+        assertThrows(IllegalStateException.class, () -> writer.remove(Optional.empty()));
+        writer.sync();
+
+        try (SegmentOffsetJournalWriter reader = new SegmentOffsetJournalWriter(tempDir.toString(), 4, 0)) {
+            reader.loadOffsets();
+            assertEquals(1, reader.position(Optional.empty(), 12345671L));
+        }
+    }
+
+    @Test
+    public void testCorruptedRecord() throws Exception {
+        try (SegmentOffsetJournalWriter writer = new SegmentOffsetJournalWriter(tempDir.toString(), 16, 0)) {
+            writer.loadOffsets();
+            writer.position(Optional.empty(), 12345671L, 1);
+            writer.flush(Optional.empty(), 12345671L);
+            writer.position(Optional.empty(), 12345672L, 2);
+            writer.flush(Optional.empty(), 12345672L);
+        }
+        // corrupt the second record, the following records are ignored
+        try (RandomAccessFile file = new RandomAccessFile(tempDir.resolve(SegmentOffsetJournalWriter.JOURNAL_FILE).toFile(), "rw")) {
+            file.seek(SegmentOffsetJournalWriter.RECORD_SIZE + 8);
+            file.writeInt(3);
+        }
+        try (SegmentOffsetJournalWriter reader = new SegmentOffsetJournalWriter(tempDir.toString(), 16, 0)) {
+            reader.loadOffsets();
+            assertEquals(1, reader.position(Optional.empty(), 12345671L));
+            assertEquals(0, reader.position(Optional.empty(), 12345672L));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentSchedulerTest {
+
+    static final CommitLogReaderService service = new CommitLogReaderService(new AgentConfig(), null, null, null) {
+        @Override
+        public Task createTask(String commitlogName, long seg, int pos, boolean completed) {
+            return new Task(commitlogName, seg, pos, completed) {
+                @Override
+                public void run() {
+                }
+
+                @Override
+                public File getFile() {
+                    return new File(commitlogName);
+                }
+            };
+        }
+    };
+
+    static CommitLogReaderService.Task task(long segment, int position, boolean completed) {
+        return service.createTask("CommitLog-6-" + segment + ".log", segment, position, completed);
+    }
+
+    @Test
+    public void testOldestSegmentFirst() throws Exception {
+        List<Runnable> started = new ArrayList<>();
+        SegmentScheduler scheduler = new SegmentScheduler();
+        scheduler.configure(started::add, 1, 16);
+
+        CommitLogReaderService.Task task3 = task(3, 100, true);
+        CommitLogReaderService.Task task2 = task(2, 100, true);
+        CommitLogReaderService.Task task1 = task(1, 100, true);
+        scheduler.submit(task3);
+        scheduler.submit(task2);
+        scheduler.submit(task1);
+        assertEquals(1, scheduler.runningTasks());
+        assertEquals(2, scheduler.pendingTasks());
+        assertSame(task3, started.get(0));
+
+        assertTrue(scheduler.finish(task3, false));
+        assertSame(task1, started.get(1));
+        assertTrue(scheduler.finish(task1, false));
+        assertSame(task2, started.get(2));
+        assertTrue(scheduler.finish(task2, false));
+        assertEquals(0, scheduler.runningTasks());
+        assertEquals(0, scheduler.pendingTasks());
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        List<Runnable> started = new ArrayList<>();
+        SegmentScheduler scheduler = new SegmentScheduler();
+        scheduler.configure(started::add, 2, 16);
+
+        CommitLogReaderService.Task running = task(1, 100, false);
+        scheduler.submit(running);
+        scheduler.submit(task(1, 200, false));
+        CommitLogReaderService.Task latest = task(1, 300, false);
+        scheduler.submit(latest);
+        assertEquals(1, started.size());
+        assertEquals(1, scheduler.pendingTasks());
+        assertEquals(1, scheduler.coalescedTasks());
+        assertSame(running, scheduler.runningTask(1));
+
+        assertFalse(scheduler.finish(running, false));
+        assertSame(latest, started.get(1));
+        assertFalse(scheduler.finish(latest, false));
+        assertEquals(1, scheduler.uncleanedTasks());
+
+        assertEquals(0, scheduler.pollUncleanedTasks(1).size());
+        assertSame(latest, scheduler.pollUncleanedTasks(2).get(0));
+        assertEquals(0, scheduler.uncleanedTasks());
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        List<Runnable> started = new ArrayList<>();
+        SegmentScheduler scheduler = new SegmentScheduler();
+        scheduler.configure(started::add, 1, 16);
+
+        CommitLogReaderService.Task task = task(1, 100, true);
+        scheduler.submit(task);
+        assertFalse(scheduler.finish(task, true));
+        assertEquals(2, started.size());
+        assertSame(task, started.get(1));
+        assertTrue(scheduler.finish(task, false));
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SkippedMutationLogTest {
+
+    final AtomicLong skipped = new AtomicLong(0);
+    final List<String> replayed = new ArrayList<>();
+
+    /**
+     * Mutations the local node should emit when their hint is replayed.
+     */
+    final Set<String> fallback = new HashSet<>();
+
+    SkippedMutationLog newLog(long delayMs, int maxHints) {
+        SkippedMutationLog log = new SkippedMutationLog(skipped, maxHints);
+        log.setDelayMs(delayMs);
+        return log;
+    }
+
+    void skip(SkippedMutationLog log, String name) {
+        log.skip(() -> fallback.contains(name), () -> replayed.add(name));
+    }
+
+    @Test
+    public void testExpire() {
+        SkippedMutationLog log = newLog(100, 10);
+        skip(log, "m1");
+        skip(log, "m2");
+        assertEquals(2, log.size());
+
+        // not expired yet
+        log.expire(System.currentTimeMillis());
+        assertEquals(2, log.size());
+        assertEquals(0, replayed.size());
+
+        // the primary replica of m1 went down during the delay
+        fallback.add("m1");
+        log.expire(System.currentTimeMillis() + 100);
+        assertEquals(0, log.size());
+        assertEquals(1, replayed.size());
+        assertEquals("m1", replayed.get(0));
+        assertEquals(1, skipped.get());
+    }
+
+    @Test
+    public void testFull() {
+        SkippedMutationLog log = newLog(60000, 2);
+        fallback.add("m1");
+        skip(log, "m1");
+        skip(log, "m2");
+        assertEquals(0, replayed.size());
+
+        // the oldest hint is replayed before its delay
+        skip(log, "m3");
+        assertEquals(2, log.size());
+        assertEquals(1, replayed.size());
+        assertEquals("m1", replayed.get(0));
+
+        skip(log, "m4");
+        assertEquals(2, log.size());
+        assertEquals(1, replayed.size());
+        assertEquals(1, skipped.get());
+    }
+
+    @Test
+    public void testReplayFailure() {
+        SkippedMutationLog log = newLog(0, 10);
+        log.skip(() -> true, () -> {
+            throw new IllegalStateException("send failed");
+        });
+        fallback.add("m1");
+        skip(log, "m1");
+        // a failed replay does not prevent the next ones
+        log.expire(System.currentTimeMillis());
+        assertEquals(0, log.size());
+        assertEquals(1, replayed.size());
+    }
+}
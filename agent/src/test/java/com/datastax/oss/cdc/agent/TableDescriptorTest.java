@@ -0,0 +1,62 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TableDescriptorTest {
+
+    static TableDescriptor<List<String>> build(List<String> columns) {
+        return new TableDescriptor<>(columns, "ks", "table", Collections.emptyList(), new ArrayList<>(columns));
+    }
+
+    @Test
+    public void testInPlaceSchemaChange() {
+        UUID version1 = UUID.randomUUID();
+        // metadata updated in place on schema change, as with Cassandra 3.x
+        List<String> metadata = new ArrayList<>(Arrays.asList("a"));
+        TableDescriptor<List<String>> descriptor = TableDescriptor.get("table1", metadata, version1, TableDescriptorTest::build);
+        assertSame(descriptor, TableDescriptor.get("table1", metadata, version1, TableDescriptorTest::build));
+        assertEquals(-1, descriptor.columnIndex("b"));
+
+        metadata.add("b");
+        TableDescriptor<List<String>> descriptor2 = TableDescriptor.get("table1", metadata, UUID.randomUUID(), TableDescriptorTest::build);
+        assertNotSame(descriptor, descriptor2);
+        assertEquals(1, descriptor2.columnIndex("b"));
+    }
+
+    @Test
+    public void testDroppedTable() {
+        UUID version1 = UUID.randomUUID();
+        TableDescriptor.get("table1", Arrays.asList("a"), version1, TableDescriptorTest::build);
+        TableDescriptor.get("table2", Arrays.asList("a"), version1, TableDescriptorTest::build);
+        assertEquals(true, TableDescriptor.descriptors.containsKey("table2"));
+
+        // table2 is dropped
+        TableDescriptor.get("table1", Arrays.asList("a"), UUID.randomUUID(), TableDescriptorTest::build);
+        assertEquals(false, TableDescriptor.descriptors.containsKey("table2"));
+    }
+}
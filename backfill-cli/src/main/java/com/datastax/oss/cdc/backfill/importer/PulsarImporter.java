@@ -204,6 +204,7 @@ public class PulsarImporter {
                 MUTATION_OFFSET,
                 pkValues, tsMicro,
                 MUTATION_DIGEST,
+                null,
                 tableMetadata,
                 MUTATION_TOKEN);
     }
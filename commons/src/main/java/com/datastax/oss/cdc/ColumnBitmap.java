@@ -0,0 +1,80 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact encoding of the regular and static columns written by a mutation.
+ *
+ * Columns are indexed in the alphabetical order of their names. The bitmap starts with a 4 bytes schema version,
+ * the hash of the ordered column names, followed by the column bits (see {@link BitSet#toByteArray()}).
+ * A reader with another version of the table schema cannot decode the bitmap and must ignore it.
+ */
+public class ColumnBitmap {
+
+    static final int VERSION_LENGTH = 4;
+
+    /**
+     * @param columnNames the regular and static column names
+     * @return the column names in the bitmap index order
+     */
+    public static List<String> orderedColumns(Collection<String> columnNames) {
+        List<String> names = new ArrayList<>(columnNames);
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * @param orderedColumns the column names in the bitmap index order
+     * @return the schema version of the bitmaps
+     */
+    public static int version(List<String> orderedColumns) {
+        int version = 1;
+        for (String name : orderedColumns) {
+            version = 31 * version + name.hashCode();
+        }
+        return version;
+    }
+
+    public static byte[] encode(int version, BitSet columns) {
+        byte[] bits = columns.toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocate(VERSION_LENGTH + bits.length);
+        buffer.putInt(version);
+        buffer.put(bits);
+        return buffer.array();
+    }
+
+    public static int version(byte[] bitmap) {
+        return ByteBuffer.wrap(bitmap).getInt();
+    }
+
+    /**
+     * @param bitmap the encoded bitmap
+     * @param version the reader schema version
+     * @return the column indexes, or null if the bitmap was built for another schema version
+     */
+    public static BitSet decode(byte[] bitmap, int version) {
+        if (bitmap == null || bitmap.length < VERSION_LENGTH || version(bitmap) != version)
+            return null;
+        return BitSet.valueOf(ByteBuffer.wrap(bitmap, VERSION_LENGTH, bitmap.length - VERSION_LENGTH));
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc;
+
+/**
+ * The kind of change carried by a {@link MutationValue}.
+ */
+public enum MutationOperation {
+    /**
+     * Single-row insert
+     */
+    INSERT,
+
+    /**
+     * Single-row update
+     */
+    UPDATE,
+
+    /**
+     * Single-row delete
+     */
+    DELETE,
+
+    /**
+     * Partition-level delete
+     */
+    PARTITION_DELETE;
+
+    /**
+     * @return true if the operation removes the row or the partition
+     */
+    public boolean isDelete() {
+        return this == DELETE || this == PARTITION_DELETE;
+    }
+}
@@ -40,4 +40,32 @@ public class MutationValue {
      * Optional mutated columns
      */
     String[] columns;
+
+    /**
+     * Optional 128-bit binary mutation digest, set instead of the md5Digest when the agent compact digest is enabled.
+     */
+    byte[] digest;
+
+    /**
+     * Optional regular and static columns written by the mutation, see {@link ColumnBitmap}.
+     */
+    byte[] columnBitmap;
+
+    /**
+     * Optional cell values written by the mutation, see {@link RowImage}.
+     */
+    byte[] rowImage;
+
+    /**
+     * Optional mutation operation, null when sent by an older agent.
+     */
+    MutationOperation operation;
+
+    public MutationValue(String md5Digest, UUID nodeId, String[] columns) {
+        this(md5Digest, nodeId, columns, null, null, null, null);
+    }
+
+    public MutationValue(String md5Digest, UUID nodeId, String[] columns, byte[] digest) {
+        this(md5Digest, nodeId, columns, digest, null, null, null);
+    }
 }
@@ -0,0 +1,89 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact encoding of the cell values written by a mutation, so that the connector emits the row without reading it.
+ *
+ * Each written column is encoded as its 4 bytes {@link ColumnBitmap} index, the 4 bytes length of its serialized
+ * CQL value, -1 for a null value, followed by the value bytes.
+ */
+public class RowImage {
+
+    static final int NULL_LENGTH = -1;
+
+    private ByteBuffer buffer;
+
+    /**
+     * @param capacity the initial buffer capacity in bytes
+     */
+    public RowImage(int capacity) {
+        this.buffer = ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * @param index the column bitmap index
+     * @param value the serialized CQL value, or null
+     */
+    public void add(int index, ByteBuffer value) {
+        int length = value == null ? 0 : value.remaining();
+        if (buffer.remaining() < 8 + length) {
+            ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + 8 + length));
+            buffer.flip();
+            newBuffer.put(buffer);
+            buffer = newBuffer;
+        }
+        buffer.putInt(index);
+        if (value == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(length);
+            buffer.put(value.duplicate());
+        }
+    }
+
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    /**
+     * @param image the encoded row image
+     * @return the serialized CQL values by column bitmap index, null values included
+     */
+    public static Map<Integer, ByteBuffer> decode(byte[] image) {
+        Map<Integer, ByteBuffer> values = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.wrap(image);
+        while (buffer.remaining() >= 8) {
+            int index = buffer.getInt();
+            int length = buffer.getInt();
+            if (length == NULL_LENGTH) {
+                values.put(index, null);
+            } else {
+                ByteBuffer value = buffer.slice();
+                value.limit(length);
+                buffer.position(buffer.position() + length);
+                values.put(index, value);
+            }
+        }
+        return values;
+    }
+}
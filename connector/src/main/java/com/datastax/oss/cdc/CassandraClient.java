@@ -57,9 +57,11 @@ import lombok.extern.slf4j.Slf4j;
 import java.net.InetSocketAddress;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.datastax.dse.driver.api.core.config.DseDriverOption.AUTH_PROVIDER_SASL_PROPERTIES;
 import static com.datastax.dse.driver.api.core.config.DseDriverOption.AUTH_PROVIDER_SERVICE;
@@ -174,6 +176,48 @@ public class CassandraClient implements AutoCloseable {
         return cqlSession.prepare(query.asCql());
     }
 
+    /**
+     * Asynchronously prepare a SELECT statement reading <i>rows</i> rows of a partition, with an IN relation
+     * on the clustering columns.
+     * @param keyspaceName
+     * @param tableName
+     * @param projection columns, including the clustering columns
+     * @param pk primary key columns
+     * @param partitionKeyLength partition key length
+     * @param rows number of rows
+     * @return preparedStatement binding the partition key values, then the clustering key values of each row
+     */
+    public CompletionStage<PreparedStatement> prepareSelectInAsync(String keyspaceName, String tableName,
+                                                                   CqlIdentifier[] projection,
+                                                                   CqlIdentifier[] pk,
+                                                                   int partitionKeyLength,
+                                                                   int rows) {
+        String query = buildSelectIn(keyspaceName, tableName, projection, pk, partitionKeyLength, rows);
+        log.debug(query);
+        return cqlSession.prepareAsync(query);
+    }
+
+    /**
+     * @return the CQL query of {@link #prepareSelectInAsync}
+     */
+    static String buildSelectIn(String keyspaceName, String tableName,
+                                CqlIdentifier[] projection,
+                                CqlIdentifier[] pk,
+                                int partitionKeyLength,
+                                int rows) {
+        Select query = selectFrom(keyspaceName, tableName).columns(projection);
+        for (int i = 0; i < partitionKeyLength; i++)
+            query = query.whereColumn(pk[i]).isEqualTo(bindMarker());
+        int clusteringLength = pk.length - partitionKeyLength;
+        String columns = Arrays.stream(pk, partitionKeyLength, pk.length)
+                .map(c -> c.asCql(true))
+                .collect(Collectors.joining(", "));
+        String marker = clusteringLength == 1 ? "?" : "(" + String.join(", ", Collections.nCopies(clusteringLength, "?")) + ")";
+        query = query.whereRaw((clusteringLength == 1 ? columns : "(" + columns + ")")
+                + " IN (" + String.join(", ", Collections.nCopies(rows, marker)) + ")");
+        return query.asCql();
+    }
+
     /**
      * Process ssl settings in the config; essentially map them to settings in the session builder.
      *
@@ -309,17 +353,8 @@ public class CassandraClient implements AutoCloseable {
                                                                                List<ConsistencyLevel> consistencyLevels,
                                                                                PreparedStatement preparedStatement,
                                                                                String md5Digest) {
-        BoundStatement statement = preparedStatement.bind(pkValues.toArray(new Object[pkValues.size()]));
-
-        // set the coordinator node
-        Node node = null;
-        if (nodeId != null) {
-            node = cqlSession.getMetadata().getNodes().get(nodeId);
-            if (node != null && node.getState().equals(NodeState.UP)) {
-                statement = statement.setNode(node);
-            }
-        }
-        log.debug("Fetching md5Digest={} coordinator={} query={} pk={} ", md5Digest, node, preparedStatement.getQuery(), pkValues);
+        BoundStatement statement = setCoordinator(preparedStatement.bind(pkValues.toArray(new Object[pkValues.size()])), nodeId);
+        log.debug("Fetching md5Digest={} coordinator={} query={} pk={} ", md5Digest, statement.getNode(), preparedStatement.getQuery(), pkValues);
         return executeWithDowngradeConsistencyRetry(cqlSession, statement, consistencyLevels)
                 .thenApply(tuple -> {
                     log.debug("Read cl={} coordinator={} pk={}", tuple._2, tuple._1.getExecutionInfo().getCoordinator().getHostId(), pkValues);
@@ -333,6 +368,55 @@ public class CassandraClient implements AutoCloseable {
                 });
     }
 
+    /**
+     * Try to read the rows of a partition with downgraded consistency
+     * @param statement bound CQL statement
+     * @param nodeId coordinator node id
+     * @param consistencyLevels list of consistency to retry
+     */
+    public CompletionStage<Tuple3<List<Row>, ConsistencyLevel, UUID>> selectRowsAsync(BoundStatement statement,
+                                                                                      UUID nodeId,
+                                                                                      List<ConsistencyLevel> consistencyLevels) {
+        final BoundStatement coordinatedStatement = setCoordinator(statement, nodeId);
+        log.debug("Fetching coordinator={} query={}", coordinatedStatement.getNode(), statement.getPreparedStatement().getQuery());
+        return executeWithDowngradeConsistencyRetry(cqlSession, coordinatedStatement, consistencyLevels)
+                .thenCompose(tuple -> fetchAllPages(tuple._1, new ArrayList<>(tuple._1.remaining()))
+                        .thenApply(rows -> {
+                            UUID coordinator = tuple._1.getExecutionInfo().getCoordinator().getHostId();
+                            log.debug("Read cl={} coordinator={} rows={}", tuple._2, coordinator, rows.size());
+                            return new Tuple3<>(rows, tuple._2, coordinator);
+                        }))
+                .whenComplete((tuple, error) -> {
+                    if (error != null) {
+                        log.warn("Failed to retrieve rows: {}", error);
+                    }
+                });
+    }
+
+    /**
+     * Add the rows of the current page and of the following pages.
+     */
+    static CompletionStage<List<Row>> fetchAllPages(AsyncResultSet resultSet, List<Row> rows) {
+        for (Row row : resultSet.currentPage())
+            rows.add(row);
+        return resultSet.hasMorePages()
+                ? resultSet.fetchNextPage().thenCompose(nextPage -> fetchAllPages(nextPage, rows))
+                : CompletableFuture.completedFuture(rows);
+    }
+
+    /**
+     * Set the coordinator node if it is up.
+     */
+    BoundStatement setCoordinator(BoundStatement statement, UUID nodeId) {
+        if (nodeId != null) {
+            Node node = cqlSession.getMetadata().getNodes().get(nodeId);
+            if (node != null && node.getState().equals(NodeState.UP)) {
+                return statement.setNode(node);
+            }
+        }
+        return statement;
+    }
+
     CompletionStage<Tuple2<AsyncResultSet, ConsistencyLevel>> executeWithDowngradeConsistencyRetry(
             CqlSession cqlSession,
             BoundStatement boundStatement,
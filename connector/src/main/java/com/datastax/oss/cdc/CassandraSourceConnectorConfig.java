@@ -57,15 +57,20 @@ public class CassandraSourceConnectorConfig {
 
     public static final String BATCH_SIZE_CONFIG = "batch.size";
     public static final String QUERY_EXECUTORS_CONFIG = "query.executors";
-    public static final String QUERY_MAX_MOBILE_AVG_LATENCY_CONFIG = "query.maxMobileAvgLatency";
-    public static final String QUERY_MIN_MOBILE_AVG_LATENCY_CONFIG = "query.minMobileAvgLatency";
+    public static final String QUERY_MAX_INFLIGHT_CONFIG = "query.maxInflight";
     public static final String QUERY_BACKOFF_IN_MS_CONFIG = "query.backoffInMs";
     public static final String QUERY_MAX_BACKOFF_IN_SEC_CONFIG = "query.maxBackoffInSec";
+    public static final String QUERY_MUTATED_COLUMNS_ONLY_CONFIG = "query.mutatedColumnsOnly";
+    public static final String QUERY_PARTITION_READ_MAX_ROWS_CONFIG = "query.partitionReadMaxRows";
+    public static final String QUERY_PARTITION_READ_LINGER_MS_CONFIG = "query.partitionReadLingerMs";
+    public static final String QUERY_SKIP_DELETE_READS_CONFIG = "query.skipDeleteReads";
 
     public static final String CACHE_ONLY_IF_COORDINATOR_MATCH = "cache.only_if_coordinator_match";
     public static final String CACHE_MAX_DIGESTS_CONFIG = "cache.max.digest";
     public static final String CACHE_MAX_CAPACITY_CONFIG = "cache.max.capacity";
     public static final String CACHE_EXPIRE_AFTER_MS_CONFIG = "cache.expire.after.ms";
+    public static final String CACHE_PERSIST_DIR_CONFIG = "cache.persist.dir";
+    public static final String CACHE_PERSIST_INTERVAL_MS_CONFIG = "cache.persist.interval.ms";
 
     public static final String KEY_CONVERTER_CLASS_CONFIG = "key.converter";
     public static final String VALUE_CONVERTER_CLASS_CONFIG = "value.converter";
@@ -161,22 +166,18 @@ public class CassandraSourceConnectorConfig {
                             ConfigDef.Type.INT,
                             200,
                             ConfigDef.Importance.MEDIUM,
-                            "The batch size for grouping mutations before sending them to the data topic")
+                            "The maximum number of mutations being processed and not yet sent to the data topic, completed mutations are sent as soon as the previous mutations of the same primary key are sent")
                     .define(QUERY_EXECUTORS_CONFIG,
                             ConfigDef.Type.INT,
                             10,
                             ConfigDef.Importance.MEDIUM,
-                            "The initial and maximum number of threads to execute concurrent Cassandra queries")
-                    .define(QUERY_MAX_MOBILE_AVG_LATENCY_CONFIG,
-                            ConfigDef.Type.LONG,
-                            100L,
-                            ConfigDef.Importance.MEDIUM,
-                            "Maximum mobile average CQL query latency beyond which the number of executors is decreased")
-                    .define(QUERY_MIN_MOBILE_AVG_LATENCY_CONFIG,
-                            ConfigDef.Type.LONG,
-                            10L,
+                            "The number of threads processing the mutations, Cassandra queries are executed asynchronously")
+                    .define(QUERY_MAX_INFLIGHT_CONFIG,
+                            ConfigDef.Type.INT,
+                            512,
+                            ConfigDef.Range.atLeast(1),
                             ConfigDef.Importance.MEDIUM,
-                            "Minimum mobile average CQL query latency beyond which the number of executors is increased")
+                            "The initial and maximum number of concurrent asynchronous Cassandra queries, bounded by batch.size, the limit is adjusted depending on the query latency and timeouts")
                     .define(QUERY_BACKOFF_IN_MS_CONFIG,
                             ConfigDef.Type.LONG,
                             100L,
@@ -188,6 +189,28 @@ public class CassandraSourceConnectorConfig {
                             3600L,
                             ConfigDef.Importance.MEDIUM,
                             "Maximum backoff delay in seconds when there is not enough Cassandra replicas to perform the query")
+                    .define(QUERY_MUTATED_COLUMNS_ONLY_CONFIG,
+                            ConfigDef.Type.BOOLEAN,
+                            "false",
+                            ConfigDef.Importance.MEDIUM,
+                            "When true, the CQL query only reads the regular and static columns written by the mutation, as reported by the change agent. The other columns are null in the data topic record.")
+                    .define(QUERY_PARTITION_READ_MAX_ROWS_CONFIG,
+                            ConfigDef.Type.INT,
+                            1,
+                            ConfigDef.Range.between(1, 100),
+                            ConfigDef.Importance.MEDIUM,
+                            "The maximum number of rows of the same partition read by a single CQL query with an IN relation on the clustering columns. 1 disables the partition grouped reads.")
+                    .define(QUERY_PARTITION_READ_LINGER_MS_CONFIG,
+                            ConfigDef.Type.LONG,
+                            2L,
+                            ConfigDef.Range.atLeast(0),
+                            ConfigDef.Importance.MEDIUM,
+                            "The delay in milliseconds to wait for other rows of the same partition before reading them, when query.partitionReadMaxRows is greater than 1")
+                    .define(QUERY_SKIP_DELETE_READS_CONFIG,
+                            ConfigDef.Type.BOOLEAN,
+                            "false",
+                            ConfigDef.Importance.MEDIUM,
+                            "When true, a row delete is emitted as a tombstone without a CQL query, unless a later write of the same primary key was received. Only enable it when all the events of a primary key are consumed by this connector instance and the writetimes are close to the wall clock (synchronized clocks, no USING TIMESTAMP in the past or future).")
                     .define(CACHE_MAX_DIGESTS_CONFIG,
                             ConfigDef.Type.LONG,
                             "3",
@@ -215,6 +238,19 @@ public class CassandraSourceConnectorConfig {
                             ConfigDef.Importance.HIGH,
                             "Cache the mutation digest only if the coordinator node is the originator node.",
                             "CQL Read cache", 4, ConfigDef.Width.NONE, "CacheExpireAfter")
+                    .define(CACHE_PERSIST_DIR_CONFIG,
+                            ConfigDef.Type.STRING,
+                            "",
+                            ConfigDef.Importance.MEDIUM,
+                            "The directory where the mutation cache is periodically saved and reloaded from when the connector restarts. Empty disables the cache persistence.",
+                            "CQL Read cache", 5, ConfigDef.Width.NONE, "CachePersistDir")
+                    .define(CACHE_PERSIST_INTERVAL_MS_CONFIG,
+                            ConfigDef.Type.LONG,
+                            "60000",
+                            ConfigDef.Range.atLeast(1000),
+                            ConfigDef.Importance.MEDIUM,
+                            "The interval in milliseconds between two mutation cache snapshots, when cache.persist.dir is set.",
+                            "CQL Read cache", 6, ConfigDef.Width.NONE, "CachePersistInterval")
                     .define(KEY_CONVERTER_CLASS_CONFIG,
                             ConfigDef.Type.CLASS,
                             null,
@@ -629,6 +665,10 @@ public class CassandraSourceConnectorConfig {
         return globalConfig.getInt(QUERY_EXECUTORS_CONFIG);
     }
 
+    public int getQueryMaxInflight() {
+        return globalConfig.getInt(QUERY_MAX_INFLIGHT_CONFIG);
+    }
+
     public int getPort() {
         return globalConfig.getInt(PORT_OPT);
     }
@@ -637,14 +677,6 @@ public class CassandraSourceConnectorConfig {
         return globalConfig.getInt(CONCURRENT_REQUESTS_OPT);
     }
 
-    public long getQueryMaxMobileAvgLatency() {
-        return globalConfig.getLong(QUERY_MAX_MOBILE_AVG_LATENCY_CONFIG);
-    }
-
-    public long getQueryMinMobileAvgLatency() {
-        return globalConfig.getLong(QUERY_MIN_MOBILE_AVG_LATENCY_CONFIG);
-    }
-
     public long getQueryBackoffInMs() {
         return globalConfig.getLong(QUERY_BACKOFF_IN_MS_CONFIG);
     }
@@ -653,6 +685,22 @@ public class CassandraSourceConnectorConfig {
         return globalConfig.getLong(QUERY_MAX_BACKOFF_IN_SEC_CONFIG);
     }
 
+    public int getQueryPartitionReadMaxRows() {
+        return globalConfig.getInt(QUERY_PARTITION_READ_MAX_ROWS_CONFIG);
+    }
+
+    public long getQueryPartitionReadLingerMs() {
+        return globalConfig.getLong(QUERY_PARTITION_READ_LINGER_MS_CONFIG);
+    }
+
+    public boolean getQueryMutatedColumnsOnly() {
+        return globalConfig.getBoolean(QUERY_MUTATED_COLUMNS_ONLY_CONFIG);
+    }
+
+    public boolean getQuerySkipDeleteReads() {
+        return globalConfig.getBoolean(QUERY_SKIP_DELETE_READS_CONFIG);
+    }
+
     public boolean getCacheOnlyIfCoordinatorMatch() {
         return globalConfig.getBoolean(CACHE_ONLY_IF_COORDINATOR_MATCH);
     }
@@ -669,6 +717,14 @@ public class CassandraSourceConnectorConfig {
         return globalConfig.getLong(CACHE_EXPIRE_AFTER_MS_CONFIG);
     }
 
+    public String getCachePersistDir() {
+        return globalConfig.getString(CACHE_PERSIST_DIR_CONFIG);
+    }
+
+    public long getCachePersistIntervalMs() {
+        return globalConfig.getLong(CACHE_PERSIST_INTERVAL_MS_CONFIG);
+    }
+
     public enum IgnoreErrorsPolicy {
         ALL,
         NONE,
@@ -777,14 +833,19 @@ public class CassandraSourceConnectorConfig {
                         + "        " + EVENTS_SUBSCRIPTION_TYPE_CONFIG + ": %s%n"
                         + "        " + BATCH_SIZE_CONFIG + ": %d%n"
                         + "        " + QUERY_EXECUTORS_CONFIG + ": %d%n"
-                        + "        " + QUERY_MIN_MOBILE_AVG_LATENCY_CONFIG + ": %d%n"
-                        + "        " + QUERY_MAX_MOBILE_AVG_LATENCY_CONFIG + ": %d%n"
+                        + "        " + QUERY_MAX_INFLIGHT_CONFIG + ": %d%n"
                         + "        " + QUERY_BACKOFF_IN_MS_CONFIG + ": %d%n"
                         + "        " + QUERY_MAX_BACKOFF_IN_SEC_CONFIG + ": %d%n"
+                        + "        " + QUERY_MUTATED_COLUMNS_ONLY_CONFIG + ": %s%n"
+                        + "        " + QUERY_PARTITION_READ_MAX_ROWS_CONFIG + ": %d%n"
+                        + "        " + QUERY_PARTITION_READ_LINGER_MS_CONFIG + ": %d%n"
+                        + "        " + QUERY_SKIP_DELETE_READS_CONFIG + ": %s%n"
                         + "        " + CACHE_MAX_DIGESTS_CONFIG + ": %d%n"
                         + "        " + CACHE_MAX_CAPACITY_CONFIG + ": %d%n"
                         + "        " + CACHE_EXPIRE_AFTER_MS_CONFIG + ": %d%n"
                         + "        " + CACHE_ONLY_IF_COORDINATOR_MATCH + ": %s%n"
+                        + "        " + CACHE_PERSIST_DIR_CONFIG + ": %s%n"
+                        + "        " + CACHE_PERSIST_INTERVAL_MS_CONFIG + ": %d%n"
                         + "        contactPoints: %s%n"
                         + "        port: %s%n"
                         + "        maxConcurrentRequests: %d%n"
@@ -800,14 +861,19 @@ public class CassandraSourceConnectorConfig {
                 getEventsSubscriptionType(),
                 getBatchSize(),
                 getQueryExecutors(),
-                getQueryMinMobileAvgLatency(),
-                getQueryMaxMobileAvgLatency(),
+                getQueryMaxInflight(),
                 getQueryBackoffInMs(),
                 getQueryMaxBackoffInSec(),
+                getQueryMutatedColumnsOnly(),
+                getQueryPartitionReadMaxRows(),
+                getQueryPartitionReadLingerMs(),
+                getQuerySkipDeleteReads(),
                 getCacheMaxDigests(),
                 getCacheMaxCapacity(),
                 getCacheExpireAfterMs(),
                 getCacheOnlyIfCoordinatorMatch(),
+                getCachePersistDir(),
+                getCachePersistIntervalMs(),
                 getContactPoints(),
                 getPortToString(),
                 getMaxConcurrentRequests(),
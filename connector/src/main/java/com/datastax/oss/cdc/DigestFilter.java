@@ -0,0 +1,116 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Time-sliced blocked Bloom filter of (key hash, digest) pairs, answering lock-free whether a mutation
+ * has definitely not been seen. Each pair sets 4 bits in a single 64-bit block of the current slice.
+ * Slices are rotated so that a pair is kept at least the retention duration, the oldest slice being cleared
+ * before becoming the current one. The memory footprint is fixed, whatever the number of mutation keys.
+ */
+public class DigestFilter {
+
+    static final int SLICES = 4;
+
+    final AtomicLongArray[] slices;
+    final int blocks;
+    final long rotationNanos;
+
+    volatile int current;
+    volatile long rotateAt;
+
+    /**
+     * @param expectedPairs the expected number of pairs added during the retention duration
+     * @param retention the minimum duration a pair is kept in the filter
+     */
+    public DigestFilter(long expectedPairs, Duration retention) {
+        // about 10 bits per pair for a false positive rate of 1 or 2%
+        this.blocks = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (expectedPairs * 10 + 63) / 64));
+        this.slices = new AtomicLongArray[SLICES];
+        for (int i = 0; i < SLICES; i++)
+            slices[i] = new AtomicLongArray(blocks);
+        // a pair added to a slice stays until the slice is reused SLICES rotations later
+        this.rotationNanos = Math.max(1, retention.toNanos() / (SLICES - 1));
+        this.rotateAt = System.nanoTime() + rotationNanos;
+    }
+
+    static long hash(long keyHash, long msb, long lsb) {
+        long h = keyHash ^ Long.rotateLeft(msb, 21) ^ Long.rotateLeft(lsb, 42) ^ (msb * 0x9e3779b97f4a7c15L);
+        // murmur3 64-bit finalizer
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    int block(long h) {
+        return (int) ((h >>> 32) % blocks);
+    }
+
+    static long mask(long h) {
+        return (1L << (h & 63)) | (1L << ((h >>> 6) & 63)) | (1L << ((h >>> 12) & 63)) | (1L << ((h >>> 18) & 63));
+    }
+
+    public void add(long keyHash, long msb, long lsb) {
+        maybeRotate();
+        long h = hash(keyHash, msb, lsb);
+        int block = block(h);
+        long mask = mask(h);
+        AtomicLongArray slice = slices[current];
+        long bits = slice.get(block);
+        while ((bits & mask) != mask && !slice.compareAndSet(block, bits, bits | mask))
+            bits = slice.get(block);
+    }
+
+    /**
+     * @return false if the pair has definitely not been added during the retention duration
+     */
+    public boolean mightContain(long keyHash, long msb, long lsb) {
+        maybeRotate();
+        long h = hash(keyHash, msb, lsb);
+        int block = block(h);
+        long mask = mask(h);
+        for (AtomicLongArray slice : slices) {
+            if ((slice.get(block) & mask) == mask)
+                return true;
+        }
+        return false;
+    }
+
+    void maybeRotate() {
+        if (System.nanoTime() - rotateAt >= 0) {
+            synchronized (this) {
+                long now = System.nanoTime();
+                // catch up the missed rotations, at most clearing all the slices
+                for (int rotations = 0; now - rotateAt >= 0 && rotations < SLICES; rotations++) {
+                    int next = (current + 1) % SLICES;
+                    AtomicLongArray slice = slices[next];
+                    for (int i = 0; i < blocks; i++)
+                        slice.set(i, 0L);
+                    current = next;
+                    rotateAt += rotationNanos;
+                }
+                if (now - rotateAt >= 0)
+                    rotateAt = now + rotationNanos;
+            }
+        }
+    }
+}
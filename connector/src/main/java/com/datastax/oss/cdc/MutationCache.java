@@ -17,59 +17,326 @@ package com.datastax.oss.cdc;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.common.hash.Hashing;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Keep MD5 digests to deduplicate Cassandra mutations
+ * Keep mutation digests to deduplicate Cassandra mutations.
+ * Digests are stored and compared as two longs, whether they come from an MD5 hex string or a 128-bit binary digest.
+ * Entries are keyed by a 64-bit hash of the mutation key and hold a fixed-size ring of digests in a primitive array.
  */
 public class MutationCache<K> {
 
-    Cache<K, List<String>> mutationCache;
+    /**
+     * A 128-bit mutation digest.
+     */
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static final class Digest {
+        final long msb;
+        final long lsb;
+
+        /**
+         * @param bytes a 16 bytes binary digest
+         * @return the digest
+         */
+        public static Digest of(byte[] bytes) {
+            ByteBuffer bb = ByteBuffer.wrap(bytes);
+            return new Digest(bb.getLong(), bb.getLong());
+        }
+
+        /**
+         * @param md5Digest a 32 chars MD5 hex string, other strings are hashed to 128 bits
+         * @return the digest, or null if md5Digest is null
+         */
+        public static Digest of(String md5Digest) {
+            if (md5Digest == null)
+                return null;
+            if (md5Digest.length() == 32) {
+                try {
+                    return new Digest(Long.parseUnsignedLong(md5Digest.substring(0, 16), 16),
+                            Long.parseUnsignedLong(md5Digest.substring(16), 16));
+                } catch (NumberFormatException e) {
+                    // not an hex string
+                }
+            }
+            UUID uuid = UUID.nameUUIDFromBytes(md5Digest.getBytes(StandardCharsets.UTF_8));
+            return new Digest(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        }
+
+        /**
+         * @param mutationValue the mutation value
+         * @return the binary digest if present, or the MD5 digest, or null if the mutation has no digest
+         */
+        public static Digest of(MutationValue mutationValue) {
+            return mutationValue.getDigest() != null
+                    ? of(mutationValue.getDigest())
+                    : of(mutationValue.getMd5Digest());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", msb, lsb);
+        }
+    }
+
+    /**
+     * Digest rings by 64-bit key hash. A ring is a long array holding the number of added digests,
+     * followed by the most and least significant bits of the last <i>maxDigests</i> digests.
+     * Rings are mutated and read while holding their monitor.
+     */
+    Cache<Long, long[]> mutationCache;
 
     /**
      * Max number of cached digest per cached entry.
      */
-    long maxDigests;
+    int maxDigests;
+
+    /**
+     * Pre-filter of the (key hash, digest) pairs, the cache is only looked up on a possible hit.
+     */
+    final DigestFilter filter;
+
+    /**
+     * Number of lookups answered by the pre-filter alone.
+     */
+    final LongAdder filterNegatives = new LongAdder();
 
     public MutationCache(long maxDigests, long maxCapacity, Duration expireAfter) {
-        this.maxDigests = maxDigests;
+        this.maxDigests = (int) maxDigests;
+        final long expireAfterNanos = TimeUnit.SECONDS.toNanos(expireAfter.getSeconds());
+        // expire after write, with a variable policy to reload the remaining lifetime of the snapshot entries
         mutationCache = Caffeine.newBuilder()
-                .expireAfterWrite(expireAfter.getSeconds(), TimeUnit.SECONDS)
+                .expireAfter(new Expiry<Long, long[]>() {
+                    @Override
+                    public long expireAfterCreate(Long key, long[] ring, long currentTime) {
+                        return expireAfterNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long key, long[] ring, long currentTime, long currentDuration) {
+                        return expireAfterNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long key, long[] ring, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
                 .maximumSize(maxCapacity)
                 .recordStats()
                 .build();
+        this.filter = new DigestFilter(maxCapacity * maxDigests, expireAfter);
     }
 
-    public List<String> getMutationCRCs(K mutationKey) {
-        return mutationCache.getIfPresent(mutationKey);
+    /**
+     * @param mutationKey the mutation key
+     * @return a 64-bit hash of the key, collisions are negligible for the cache capacity
+     */
+    static long hash(Object mutationKey) {
+        if (mutationKey instanceof String)
+            return Hashing.murmur3_128().hashString((String) mutationKey, StandardCharsets.UTF_8).asLong();
+        if (mutationKey instanceof byte[])
+            return Hashing.murmur3_128().hashBytes((byte[]) mutationKey).asLong();
+        return Hashing.murmur3_128().hashInt(mutationKey.hashCode()).asLong();
     }
 
-    public List<String> addMutationMd5(K mutationKey, String md5Digest) {
-        List<String> crcs = getMutationCRCs(mutationKey);
-        if(crcs == null) {
-            crcs = new ArrayList<>(1);
-            crcs.add(md5Digest);
-        } else {
-            if (!crcs.contains(md5Digest)) {
-                if (crcs.size() >= maxDigests) {
-                    // remove the oldest digest
-                    crcs.remove(0);
+    public List<Digest> getMutationCRCs(K mutationKey) {
+        long[] ring = mutationCache.getIfPresent(hash(mutationKey));
+        if (ring == null)
+            return null;
+        synchronized (ring) {
+            int size = (int) Math.min(ring[0], maxDigests);
+            List<Digest> digests = new ArrayList<>(size);
+            for (int i = 0; i < size; i++)
+                digests.add(new Digest(ring[1 + 2 * i], ring[2 + 2 * i]));
+            return digests;
+        }
+    }
+
+    public void addMutationMd5(K mutationKey, String md5Digest) {
+        addMutationDigest(mutationKey, Digest.of(md5Digest));
+    }
+
+    public void addMutationDigest(K mutationKey, Digest digest) {
+        if (digest == null)
+            return;
+        mutationCache.asMap().compute(hash(mutationKey), (k, ring) -> {
+            if (ring == null) {
+                ring = new long[1 + 2 * maxDigests];
+            }
+            synchronized (ring) {
+                if (!contains(ring, digest)) {
+                    // overwrite the oldest digest
+                    int slot = (int) (ring[0] % maxDigests);
+                    ring[1 + 2 * slot] = digest.msb;
+                    ring[2 + 2 * slot] = digest.lsb;
+                    ring[0]++;
                 }
-                crcs.add(md5Digest);
+                // the ring lifetime is renewed, so are its digests in the filter
+                addToFilter(k, ring);
             }
-        }
-        mutationCache.put(mutationKey, crcs);
-        return crcs;
+            return ring;
+        });
     }
 
     public boolean isMutationProcessed(K mutationKey, String md5Digest) {
-        List<String> digests = getMutationCRCs(mutationKey);
-        return digests != null && digests.contains(md5Digest);
+        return isMutationProcessed(mutationKey, Digest.of(md5Digest));
+    }
+
+    public boolean isMutationProcessed(K mutationKey, Digest digest) {
+        // a mutation without digest cannot be deduplicated
+        if (digest == null)
+            return false;
+        long keyHash = hash(mutationKey);
+        if (!filter.mightContain(keyHash, digest.msb, digest.lsb)) {
+            filterNegatives.increment();
+            return false;
+        }
+        long[] ring = mutationCache.getIfPresent(keyHash);
+        if (ring == null)
+            return false;
+        synchronized (ring) {
+            return contains(ring, digest);
+        }
+    }
+
+    private void addToFilter(long keyHash, long[] ring) {
+        int size = (int) Math.min(ring[0], maxDigests);
+        for (int i = 0; i < size; i++)
+            filter.add(keyHash, ring[1 + 2 * i], ring[2 + 2 * i]);
+    }
+
+    private boolean contains(long[] ring, Digest digest) {
+        int size = (int) Math.min(ring[0], maxDigests);
+        for (int i = 0; i < size; i++) {
+            if (ring[1 + 2 * i] == digest.msb && ring[2 + 2 * i] == digest.lsb)
+                return true;
+        }
+        return false;
+    }
+
+    static final int SNAPSHOT_MAGIC = 0x4d435331;
+
+    /**
+     * Snapshot header: magic number, max digests per entry and number of entries.
+     */
+    static final int SNAPSHOT_HEADER_SIZE = 12;
+
+    /**
+     * Snapshot entry: key hash, expiration time in epoch milliseconds and digest ring.
+     */
+    int snapshotEntrySize() {
+        return 16 + 8 * (1 + 2 * maxDigests);
+    }
+
+    /**
+     * Write the cache entries and their expiration time into a memory-mapped file, atomically replaced.
+     *
+     * @param file the snapshot file
+     * @return the number of written entries
+     */
+    public int snapshot(Path file) throws IOException {
+        Policy.VarExpiration<Long, long[]> expiration = mutationCache.policy().expireVariably().get();
+        int entrySize = snapshotEntrySize();
+        int capacity = (int) Math.min(mutationCache.estimatedSize() + 1024, (Integer.MAX_VALUE - SNAPSHOT_HEADER_SIZE) / entrySize);
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(tmpFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SNAPSHOT_HEADER_SIZE + (long) capacity * entrySize);
+            buffer.position(SNAPSHOT_HEADER_SIZE);
+            long now = System.currentTimeMillis();
+            for (Map.Entry<Long, long[]> entry : mutationCache.asMap().entrySet()) {
+                if (count == capacity)
+                    break;
+                OptionalLong remaining = expiration.getExpiresAfter(entry.getKey(), TimeUnit.MILLISECONDS);
+                if (!remaining.isPresent())
+                    continue;
+                buffer.putLong(entry.getKey());
+                buffer.putLong(now + remaining.getAsLong());
+                long[] ring = entry.getValue();
+                synchronized (ring) {
+                    for (long value : ring)
+                        buffer.putLong(value);
+                }
+                count++;
+            }
+            buffer.putInt(0, SNAPSHOT_MAGIC);
+            buffer.putInt(4, maxDigests);
+            buffer.putInt(8, count);
+            buffer.force();
+        }
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Load the unexpired entries of a snapshot file.
+     *
+     * @param file the snapshot file
+     * @return the number of loaded entries
+     * @throws IOException if the file is not a valid snapshot for this cache
+     */
+    public int load(Path file) throws IOException {
+        if (!Files.exists(file))
+            return 0;
+        Policy.VarExpiration<Long, long[]> expiration = mutationCache.policy().expireVariably().get();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < SNAPSHOT_HEADER_SIZE || buffer.getInt(0) != SNAPSHOT_MAGIC)
+                throw new IOException("Invalid mutation cache snapshot " + file);
+            if (buffer.getInt(4) != maxDigests)
+                throw new IOException("Mutation cache snapshot " + file + " has " + buffer.getInt(4) + " digests per entry");
+            int count = buffer.getInt(8);
+            if (SNAPSHOT_HEADER_SIZE + (long) count * snapshotEntrySize() > channel.size())
+                throw new IOException("Truncated mutation cache snapshot " + file);
+            buffer.position(SNAPSHOT_HEADER_SIZE);
+            long now = System.currentTimeMillis();
+            int loaded = 0;
+            for (int i = 0; i < count; i++) {
+                long key = buffer.getLong();
+                long remaining = buffer.getLong() - now;
+                long[] ring = new long[1 + 2 * maxDigests];
+                for (int j = 0; j < ring.length; j++)
+                    ring[j] = buffer.getLong();
+                if (remaining > 0) {
+                    expiration.put(key, ring, remaining, TimeUnit.MILLISECONDS);
+                    addToFilter(key, ring);
+                    loaded++;
+                }
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * @return the number of lookups answered by the pre-filter without looking up the cache
+     */
+    public long filterNegativeCount() {
+        return filterNegatives.sum();
     }
 
     public CacheStats stats() {
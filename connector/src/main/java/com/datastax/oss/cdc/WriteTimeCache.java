@@ -0,0 +1,79 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keep the latest writetime of the insert and update mutations by routing key,
+ * to know whether a delete mutation may have been followed by a resurrecting write.
+ * <p>
+ * Entries are only evicted by size, so a write evicted from the cache is covered by the latest evicted writetime,
+ * whatever its client-supplied timestamp. A missing entry still does not prove the absence of a write processed
+ * before the cache was created, this is only true if the writetimes are close to the wall clock.
+ */
+public class WriteTimeCache<K> {
+
+    Cache<K, Long> writeTimes;
+    final long createdMs = System.currentTimeMillis();
+
+    /**
+     * Latest writetime evicted because the cache was full, in microseconds.
+     */
+    final AtomicLong evictedWriteTime = new AtomicLong(Long.MIN_VALUE);
+
+    public WriteTimeCache(long maxCapacity) {
+        writeTimes = Caffeine.newBuilder()
+                .maximumSize(maxCapacity)
+                .writer(new CacheWriter<K, Long>() {
+                    @Override
+                    public void write(K key, Long writeTime) {
+                    }
+
+                    @Override
+                    public void delete(K key, Long writeTime, RemovalCause cause) {
+                        if (cause == RemovalCause.SIZE && writeTime != null)
+                            evictedWriteTime.accumulateAndGet(writeTime, Math::max);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * @param key       the routing key of the mutation
+     * @param writeTime the mutation writetime in microseconds
+     */
+    public void addWriteTime(K key, long writeTime) {
+        writeTimes.asMap().merge(key, writeTime, Math::max);
+    }
+
+    /**
+     * @param key        the routing key of the delete mutation
+     * @param deleteTime the delete mutation writetime in microseconds
+     * @return false only if no write more recent than the delete was received for the key
+     */
+    public boolean mayHaveWriteAfter(K key, long deleteTime) {
+        if (deleteTime / 1000L <= createdMs || deleteTime <= evictedWriteTime.get())
+            return true;
+        Long writeTime = writeTimes.getIfPresent(key);
+        return writeTime != null && writeTime > deleteTime;
+    }
+}
@@ -17,13 +17,19 @@ package com.datastax.oss.pulsar.source;
 
 import com.datastax.oss.cdc.CassandraClient;
 import com.datastax.oss.cdc.CassandraSourceConnectorConfig;
+import com.datastax.oss.cdc.ColumnBitmap;
 import com.datastax.oss.cdc.ConfigUtil;
 import com.datastax.oss.cdc.Constants;
 import com.datastax.oss.cdc.CqlLogicalTypes;
 import com.datastax.oss.cdc.MutationCache;
+import com.datastax.oss.cdc.MutationOperation;
 import com.datastax.oss.cdc.MutationValue;
+import com.datastax.oss.cdc.RowImage;
 import com.datastax.oss.cdc.Version;
+import com.datastax.oss.cdc.WriteTimeCache;
 import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 import com.datastax.oss.driver.api.core.cql.Row;
 import com.datastax.oss.driver.api.core.metadata.schema.AggregateMetadata;
@@ -33,7 +39,12 @@ import com.datastax.oss.driver.api.core.metadata.schema.KeyspaceMetadata;
 import com.datastax.oss.driver.api.core.metadata.schema.SchemaChangeListener;
 import com.datastax.oss.driver.api.core.metadata.schema.TableMetadata;
 import com.datastax.oss.driver.api.core.metadata.schema.ViewMetadata;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.ListType;
+import com.datastax.oss.driver.api.core.type.MapType;
+import com.datastax.oss.driver.api.core.type.SetType;
 import com.datastax.oss.driver.api.core.type.UserDefinedType;
+import com.datastax.oss.driver.internal.core.cql.DefaultRow;
 import com.datastax.oss.pulsar.source.converters.NativeAvroConverter;
 import com.datastax.oss.pulsar.source.converters.NativeJsonConverter;
 import com.github.benmanes.caffeine.cache.stats.CacheStats;
@@ -67,30 +78,33 @@ import org.apache.pulsar.io.core.SourceContext;
 import org.apache.pulsar.io.core.annotations.Connector;
 import org.apache.pulsar.io.core.annotations.IOType;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -126,16 +140,41 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
      */
     public static final String CACHE_SIZE = "cache_size";
 
+    /**
+     * Metric name for the number of mutations found not processed by the mutation cache pre-filter.
+     */
+    public static final String CACHE_FILTER_NEGATIVES = "cache_filter_negatives";
+
+    /**
+     * Metric name for the number of mutations coalesced with a following mutation of the same key.
+     */
+    public static final String COALESCED_MUTATIONS = "coalesced_mutations";
+
     /**
      * Metric name for the CQL query latency in milliseconds.
      */
     public static final String QUERY_LATENCY = "query_latency";
 
     /**
-     * Metric name for the current number of query executor threads
+     * Metric name for the number of query executor threads
      */
     public static final String QUERY_EXECUTORS = "query_executors";
 
+    /**
+     * Metric name for the current maximum number of concurrent asynchronous CQL queries
+     */
+    public static final String QUERY_INFLIGHT_LIMIT = "query_inflight_limit";
+
+    /**
+     * Metric name for the number of in-flight asynchronous CQL queries
+     */
+    public static final String QUERY_INFLIGHT = "query_inflight";
+
+    /**
+     * Metric name for the long-term average CQL query RTT in milliseconds, the baseline of the in-flight limit
+     */
+    public static final String QUERY_LONG_RTT = "query_long_rtt";
+
     /**
      * The metric name for the replication latency (the Cassandra write time minus the publish time)
      */
@@ -154,6 +193,17 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
 
     MutationCache<String> mutationCache;
 
+    /**
+     * Mutation cache snapshot file and scheduler, null when the cache persistence is disabled.
+     */
+    Path mutationCacheFile;
+    ScheduledExecutorService mutationCacheSnapshotExecutor;
+
+    /**
+     * Latest insert or update writetime by partition key values.
+     */
+    WriteTimeCache<String> writeTimeCache;
+
     final Schema<KeyValue<GenericRecord, MutationValue>> eventsSchema = Schema.KeyValue(
             Schema.AUTO_CONSUME(),
             Schema.AVRO(MutationValue.class),
@@ -171,37 +221,47 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
     private Object emptyValue;
 
     /**
-     * Single threaded executors to fetch CQL rows.
+     * Executor processing the mutations in order per key, CQL rows are fetched asynchronously.
      * Protect from a race condition issue when processing the same PK in parallel.
-     * <p>
-     * The number of threads is adaptive to avoid overloading the source C* cluster,
-     * it depends ont the average query latency and timeouts.
      */
-    List<ExecutorService> queryExecutors;
+    OrderedExecutor queryExecutor;
 
     /**
-     * Per batch total CQL latency
+     * Coalesce the mutations of a hot key with the read of a following mutation.
      */
-    final AtomicLong batchTotalLatency = new AtomicLong(0);
+    MutationCoalescer<KeyValue<Object, Object>> coalescer;
+
+    final AtomicLong coalescedMutations = new AtomicLong(0);
 
     /**
-     * Per batch total CQL queries
+     * Group the reads of the same partition, null when disabled.
      */
-    final AtomicLong batchTotalQuery = new AtomicLong(0);
+    PartitionReadPlanner partitionReadPlanner;
 
     /**
-     * Circular array of the last batch avg latencies use to compute the mobile average query latency.
+     * Bounds the in-flight mutations.
+     * <p>
+     * The limit is adaptive to avoid overloading the source C* cluster,
+     * it depends on the query RTT and timeouts.
      */
-    long[] batchAvgLatencyList = new long[10];
-    int batchAvgLatencyHead = 0;
-    int batchAvgLatencyListSize = 0;
+    InflightPermits inflightPermits;
+    GradientLimiter inflightLimiter;
 
     /**
      * Number of consecutive unavailableException used to compute the exponential backoff.
      */
     long consecutiveUnavailableException = 0;
 
-    private ArrayBlockingQueue<CassandraRecord> buffer;
+    /**
+     * Mutations received and not yet emitted in the events topic order, bounded by the batch size.
+     */
+    private final ReorderWindow<CassandraRecord> pending = new ReorderWindow<>(
+            record -> record.getMutationMessage().getKey(), CassandraRecord::getQueryResult);
+
+    /**
+     * Released on each query completion.
+     */
+    private final Semaphore completions = new Semaphore(0);
 
     public CassandraSource() {
         // register AVRO logical types conversion
@@ -211,54 +271,17 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
         SpecificData.get().addLogicalTypeConversion(new Conversions.UUIDConversion());
     }
 
-    private <T> Future<T> executeOrdered(Object key, Callable<T> task) {
-        Preconditions.checkArgument(key != null, "message key should not be null");
-        Preconditions.checkState(queryExecutors != null, "queryExecutors should not be null");
-        int threadIdx = Math.abs(Objects.hashCode(key)) % queryExecutors.size();
-        log.debug("Submit task key={} on thread={}/{}", key, threadIdx, queryExecutors.size());
-        return queryExecutors.get(threadIdx).submit(task);
-    }
-
     /**
-     * Adjust the number of threads depending on the mobile moving average of the read latency.
-     */
-    private void adjustExecutors() {
-        long batchAvgLatency = this.batchTotalLatency.get() / this.batchTotalQuery.get();
-        this.batchAvgLatencyList[this.batchAvgLatencyHead] = batchAvgLatency;
-        this.batchAvgLatencyHead = (this.batchAvgLatencyHead + 1) % this.batchAvgLatencyList.length;
-        this.batchAvgLatencyListSize = Math.min(batchAvgLatencyListSize + 1, this.batchAvgLatencyList.length);
-
-        long latencyTotal = 0;
-        for (int i = 0; i < this.batchAvgLatencyListSize; i++) {
-            log.debug("batchAvgLatencyList={}, batchAvgLatencyHead={}, batchAvgLatencyListSize={}, i={}",
-                    Arrays.toString(batchAvgLatencyList), batchAvgLatencyHead, batchAvgLatencyListSize, i);
-            latencyTotal += this.batchAvgLatencyList[i];
-        }
-        long mobileAvgLatency = latencyTotal / batchAvgLatencyListSize;
-        log.debug("mobileAvgLatency={}, batchAvgLatencyList={}", mobileAvgLatency, Arrays.toString(batchAvgLatencyList));
-        if (mobileAvgLatency < config.getQueryMinMobileAvgLatency() && queryExecutors.size() < config.getQueryExecutors()) {
-            queryExecutors.add(Executors.newSingleThreadExecutor());
-            log.info("mobileAvgLatency={}, increasing the query executor to {} threads", mobileAvgLatency, queryExecutors.size());
-        }
-        if (mobileAvgLatency > config.getQueryMaxMobileAvgLatency() && queryExecutors.size() > 1) {
-            queryExecutors.remove(queryExecutors.size() - 1).shutdown();
-            log.info("mobileAvgLatency={}, decreasing the query executor to {} threads", mobileAvgLatency, queryExecutors.size());
-        }
-    }
-
-    /**
-     * Decrease the number of thread by 10 percent because of the provided Exception.
+     * Decrease the number of in-flight queries by 10 percent because of the provided Exception.
      *
      * @param throwable
      */
-    private void decreaseExecutors(Throwable throwable) {
-        if (queryExecutors.size() > 1) {
-            int numberOfThreadToRemove = Math.max(1, queryExecutors.size() / 10);
-            for (int i = 0; i < numberOfThreadToRemove; i++)
-                queryExecutors.remove(queryExecutors.size() - 1).shutdown();
-            log.warn("CQL read issue={}, decreasing the query executor to {} threads", throwable, queryExecutors.size());
+    private void decreaseMaxInflight(Throwable throwable) {
+        if (inflightPermits.getLimit() > 1) {
+            int limit = inflightLimiter.onDrop();
+            log.warn("CQL read issue={}, decreasing the in-flight queries to {}", throwable, limit);
         } else {
-            log.warn("CQL read issue={} with only 1 executor threads, please consider limiting the source connector throughput to avoid overloading the Cassandra cluster", throwable);
+            log.warn("CQL read issue={} with only 1 in-flight query, please consider limiting the source connector throughput to avoid overloading the Cassandra cluster", throwable);
         }
     }
 
@@ -282,11 +305,14 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
         }
     }
 
-    private void initQueryExecutors() {
-        log.info("initQueryExecutors with {} treads", this.config.getQueryExecutors());
-        this.queryExecutors = new ArrayList<>(this.config.getQueryExecutors());
-        for (int i = 0; i < this.config.getQueryExecutors(); i++)
-            this.queryExecutors.add(Executors.newSingleThreadExecutor());
+    private void initQueryExecutor() {
+        // there are at most batch.size mutations being processed, so at most batch.size in-flight queries
+        int maxInflight = Math.min(this.config.getQueryMaxInflight(), this.config.getBatchSize());
+        log.info("initQueryExecutor with {} threads and {} in-flight queries", this.config.getQueryExecutors(), maxInflight);
+        this.queryExecutor = new OrderedExecutor(this.config.getQueryExecutors());
+        this.inflightPermits = new InflightPermits(maxInflight);
+        this.inflightLimiter = new GradientLimiter(this.inflightPermits);
+        sourceContext.recordMetric(QUERY_EXECUTORS, this.config.getQueryExecutors());
     }
 
     @Override
@@ -294,7 +320,6 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
         try {
             this.sourceContext = sourceContext;
             this.config = new CassandraSourceConnectorConfig(ConfigUtil.flatString(config));
-            this.buffer = new ArrayBlockingQueue<>(this.config.getBatchSize());
             if (!Strings.isNullOrEmpty(this.config.getColumnsRegexp()) && !".*".equals(this.config.getColumnsRegexp())) {
                 this.columnPattern = Optional.of(Pattern.compile(this.config.getColumnsRegexp()));
             }
@@ -316,6 +341,12 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
                     this.config.getCacheMaxDigests(),
                     this.config.getCacheMaxCapacity(),
                     Duration.ofMillis(this.config.getCacheExpireAfterMs()));
+            if (!Strings.isNullOrEmpty(this.config.getCachePersistDir()))
+                initMutationCachePersistence();
+            if (this.config.getQuerySkipDeleteReads())
+                this.writeTimeCache = new WriteTimeCache<>(this.config.getCacheMaxCapacity());
+            // a projected read does not hold the columns of the coalesced mutations
+            this.coalescer = new MutationCoalescer<>(!this.config.getQueryMutatedColumnsOnly());
             log.info("Starting source connector topic={} subscription={} query.executors={}",
                     dirtyTopicName,
                     this.config.getEventsSubscriptionName(),
@@ -326,6 +357,34 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
         }
     }
 
+    /**
+     * Reload the mutation cache snapshot of this instance, and save it periodically.
+     */
+    void initMutationCachePersistence() throws IOException {
+        Path dir = Paths.get(this.config.getCachePersistDir());
+        Files.createDirectories(dir);
+        this.mutationCacheFile = dir.resolve(String.format(Locale.ROOT, "%s-%s-%s-%d.cache",
+                sourceContext.getTenant(), sourceContext.getNamespace(), sourceContext.getSourceName(), sourceContext.getInstanceId()));
+        try {
+            int loaded = mutationCache.load(mutationCacheFile);
+            log.info("Loaded {} mutation cache entries from {}", loaded, mutationCacheFile);
+        } catch (IOException e) {
+            log.warn("Cannot load the mutation cache snapshot {}:", mutationCacheFile, e);
+        }
+        long interval = this.config.getCachePersistIntervalMs();
+        this.mutationCacheSnapshotExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.mutationCacheSnapshotExecutor.scheduleWithFixedDelay(this::snapshotMutationCache, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void snapshotMutationCache() {
+        try {
+            int count = mutationCache.snapshot(mutationCacheFile);
+            log.debug("Saved {} mutation cache entries to {}", count, mutationCacheFile);
+        } catch (Throwable e) {
+            log.warn("Cannot save the mutation cache snapshot {}:", mutationCacheFile, e);
+        }
+    }
+
     void maybeInitCassandraClient() throws InvocationTargetException, NoSuchMethodException, IllegalAccessException, InstantiationException {
         if (this.cassandraClient == null) {
             synchronized (this) {
@@ -344,6 +403,11 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
         this.keyConverter = createConverter(getKeyConverterClass(), tuple._1, tuple._2, tuple._2.getPrimaryKey());
         this.mutationKeyConverter = new NativeAvroConverter(tuple._1, tuple._2, tuple._2.getPrimaryKey());
         setValueConverterAndQuery(tuple._1, tuple._2);
+        if (this.config.getQueryPartitionReadMaxRows() > 1) {
+            this.partitionReadPlanner = new PartitionReadPlanner(cassandraClient,
+                    this.config.getQueryPartitionReadMaxRows(),
+                    this.config.getQueryPartitionReadLingerMs());
+        }
     }
 
     synchronized void setValueConverterAndQuery(KeyspaceMetadata ksm, TableMetadata tableMetadata) {
@@ -361,13 +425,29 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
                     .collect(Collectors.toList());
             log.info("Schema update for table {}.{} replicated columns={}", ksm.getName(), tableMetadata.getName(),
                     columns.stream().map(c -> c.getName().asInternal()).collect(Collectors.toList()));
+            // the agent column bitmaps index all the regular and static columns
+            List<String> bitmapColumns = ColumnBitmap.orderedColumns(tableMetadata.getColumns().values().stream()
+                    .filter(c -> !tableMetadata.getPrimaryKey().contains(c))
+                    .map(c -> c.getName().asInternal())
+                    .collect(Collectors.toList()));
+            CqlIdentifier[] projectionClause = cassandraClient.buildProjectionClause(columns);
+            int[] projectionBitmapIndexes = new int[projectionClause.length];
+            for (int i = 0; i < projectionClause.length; i++) {
+                projectionBitmapIndexes[i] = bitmapColumns.indexOf(projectionClause[i].asInternal());
+            }
             this.valueConverterAndQuery = new ConverterAndQuery(
                     tableMetadata.getKeyspace().asInternal(),
                     tableMetadata.getName().asInternal(),
                     createConverter(getValueConverterClass(), ksm, tableMetadata, columns),
-                    cassandraClient.buildProjectionClause(columns),
+                    projectionClause,
                     cassandraClient.buildProjectionClause(staticColumns),
                     cassandraClient.buildPrimaryKeyClause(tableMetadata),
+                    new ConcurrentHashMap<>(),
+                    ColumnBitmap.version(bitmapColumns),
+                    projectionBitmapIndexes,
+                    new ConcurrentHashMap<>(),
+                    tableMetadata.getPartitionKey().size(),
+                    !tableMetadata.getClusteringColumns().isEmpty() && columns.stream().noneMatch(c -> isNonFrozenCollection(c.getType())),
                     new ConcurrentHashMap<>());
             this.emptyValue = config.isJsonOnlyOutputFormat() ? "{}".getBytes(StandardCharsets.UTF_8) : null;
             log.debug("valueConverterAndQuery={}", this.valueConverterAndQuery);
@@ -395,6 +475,106 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
                         k));
     }
 
+    /**
+     * Max number of prepared statements reading the mutated columns, beyond which all the columns are read.
+     */
+    static final int MAX_PROJECTED_STATEMENTS = 256;
+
+    /**
+     * Get the CQL prepared statement reading the row of a mutation, restricted to the mutated columns when
+     * the agent provides them and {@link CassandraSourceConnectorConfig#QUERY_MUTATED_COLUMNS_ONLY_CONFIG} is enabled.
+     *
+     * @param valueConverterAndQuery
+     * @param whereClauseLength      the number of columns in the where clause
+     * @param mutationValue          the mutation
+     * @return preparedStatement
+     */
+    PreparedStatement getSelectStatement(ConverterAndQuery valueConverterAndQuery, int whereClauseLength, MutationValue mutationValue) {
+        if (config.getQueryMutatedColumnsOnly()
+                && mutationValue.getColumnBitmap() != null
+                && whereClauseLength == valueConverterAndQuery.primaryKeyClause.length) {
+            BitSet mutatedColumns = ColumnBitmap.decode(mutationValue.getColumnBitmap(), valueConverterAndQuery.columnBitmapVersion);
+            if (mutatedColumns != null) {
+                PreparedStatement preparedStatement = valueConverterAndQuery.getProjectedStatements().get(mutatedColumns);
+                if (preparedStatement != null)
+                    return preparedStatement;
+                if (valueConverterAndQuery.getProjectedStatements().size() < MAX_PROJECTED_STATEMENTS) {
+                    preparedStatement = getProjectedSelectStatement(valueConverterAndQuery, mutatedColumns);
+                    if (preparedStatement != null)
+                        return preparedStatement;
+                }
+            }
+        }
+        return getSelectStatement(valueConverterAndQuery, whereClauseLength);
+    }
+
+    /**
+     * Build the CQL prepared statement reading the mutated columns of a row.
+     *
+     * @param valueConverterAndQuery
+     * @param mutatedColumns         the column bitmap indexes of the mutated columns
+     * @return preparedStatement, or null if no replicated column was mutated
+     */
+    synchronized PreparedStatement getProjectedSelectStatement(ConverterAndQuery valueConverterAndQuery, BitSet mutatedColumns) {
+        CqlIdentifier[] projection = valueConverterAndQuery.getProjectionClause(mutatedColumns);
+        if (projection == null)
+            return null;
+        return valueConverterAndQuery.getProjectedStatements().computeIfAbsent(mutatedColumns, k ->
+                cassandraClient.prepareSelect(
+                        valueConverterAndQuery.keyspaceName,
+                        valueConverterAndQuery.tableName,
+                        projection,
+                        valueConverterAndQuery.primaryKeyClause,
+                        valueConverterAndQuery.primaryKeyClause.length));
+    }
+
+    static boolean isNonFrozenCollection(DataType type) {
+        return (type instanceof ListType && !((ListType) type).isFrozen())
+                || (type instanceof SetType && !((SetType) type).isFrozen())
+                || (type instanceof MapType && !((MapType) type).isFrozen());
+    }
+
+    /**
+     * Build the row from the cell values sent by the agent, when they cover all the replicated columns.
+     *
+     * @param valueConverterAndQuery
+     * @param whereClauseLength      the number of columns in the where clause
+     * @param mutationValue          the mutation
+     * @return the row, or null if the row must be read from Cassandra
+     */
+    Row getRowImage(ConverterAndQuery valueConverterAndQuery, int whereClauseLength, MutationValue mutationValue) {
+        if (mutationValue.getRowImage() == null
+                || mutationValue.getColumnBitmap() == null
+                || config.isJsonOnlyOutputFormat()
+                || whereClauseLength != valueConverterAndQuery.primaryKeyClause.length
+                || ColumnBitmap.version(mutationValue.getColumnBitmap()) != valueConverterAndQuery.columnBitmapVersion) {
+            return null;
+        }
+        Map<Integer, ByteBuffer> values = RowImage.decode(mutationValue.getRowImage());
+        List<ByteBuffer> data = new ArrayList<>(valueConverterAndQuery.projectionClause.length);
+        for (int index : valueConverterAndQuery.projectionBitmapIndexes) {
+            if (!values.containsKey(index))
+                return null;    // partial update
+            data.add(values.get(index));
+        }
+        // the full row prepared statement result columns are ordered as the projection clause
+        ColumnDefinitions definitions = getSelectStatement(valueConverterAndQuery, whereClauseLength).getResultSetDefinitions();
+        return new DefaultRow(definitions, data, cassandraClient.getCqlSession().getContext());
+    }
+
+    /**
+     * Complete a mutation whose value is known without reading the row.
+     */
+    KeyValue<Object, Object> completeWithoutQuery(Message<KeyValue<GenericRecord, MutationValue>> msg, GenericRecord mutationKey,
+                                                  MutationCache.Digest digest, Object value) {
+        mutationCache.addMutationDigest(msg.getKey(), digest);
+        sourceContext.recordMetric(QUERY_LATENCY, 0);
+        if (msg.hasProperty(Constants.WRITETIME))
+            sourceContext.recordMetric(REPLICATION_LATENCY, System.currentTimeMillis() - (Long.parseLong(msg.getProperty(Constants.WRITETIME)) / 1000L));
+        Object key = config.isAvroOutputFormat() ? msg.getKeyBytes() : keyConverter.fromConnectData(mutationKey.getNativeObject());
+        return new KeyValue<>(key, value);
+    }
+
     Class<?> getKeyConverterClass() {
         return this.config.getKeyConverterClass() == null
                 ? this.config.isJsonOutputFormat() ? NativeJsonConverter.class : NativeAvroConverter.class
@@ -423,16 +603,32 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
     @Override
     public void close() {
         log.info("Closing connector");
+        if (this.partitionReadPlanner != null) {
+            this.partitionReadPlanner.close();
+            this.partitionReadPlanner = null;
+        }
         if (this.cassandraClient != null) {
             this.cassandraClient.close();
             this.cassandraClient = null;
         }
-        if (queryExecutors != null) {
-            for (ExecutorService thread : queryExecutors) {
-                thread.shutdownNow();
+        if (queryExecutor != null) {
+            queryExecutor.shutdownNow();
+            queryExecutor = null;
+        }
+        if (mutationCacheSnapshotExecutor != null) {
+            // wait for a running snapshot before saving the last one
+            mutationCacheSnapshotExecutor.shutdown();
+            try {
+                mutationCacheSnapshotExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            queryExecutors = null;
+            mutationCacheSnapshotExecutor = null;
+            snapshotMutationCache();
         }
+        if (coalescer != null)
+            coalescer.clear();
+        pending.clear();
     }
 
     /**
@@ -446,147 +642,67 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
     @SuppressWarnings("unchecked")
     public Record<GenericRecord> read() throws Exception {
         Preconditions.checkState(this.sourceContext != null, "sourceContext should not be null");
-        CassandraRecord record = buffer.poll();
-        if (record != null) {
-            consumer.acknowledge(record.getMutationMessage());
-            return (Record) record;
-        }
-        // this methods returns only if the buffer holds at least one record
-        maybeBatchRead();
-        record = buffer.poll();
-        consumer.acknowledge(record.getMutationMessage());
-        return record;
-    }
-
-    private void maybeBatchRead() throws Exception {
-        Preconditions.checkState(buffer.isEmpty(), "Buffer is not empty");
-        List<CassandraRecord> newRecords = batchRead();
-        while (newRecords.isEmpty()) {
-            newRecords = batchRead();
+        if (this.queryExecutor == null)
+            initQueryExecutor();
+        // this methods returns only when a record is completed
+        CassandraRecord record = processPending();
+        while (record == null) {
+            record = processPending();
         }
-        buffer.addAll(newRecords);
+        consumer.acknowledge(record.getMutationMessage());
+        return (Record) record;
     }
 
-    @SuppressWarnings("unchecked")
-    private List<CassandraRecord> batchRead() throws Exception {
-        batchTotalLatency.set(0);
-        batchTotalQuery.set(0);
-        List<CassandraRecord> newRecords = new ArrayList<>();
-        if (this.queryExecutors == null)
-            initQueryExecutors();
+    /**
+     * Receive new mutations while the reorder window is not full, then return the first completed mutation,
+     * or wait for a query completion.
+     *
+     * @return the next record to emit, or null if no record is completed yet
+     */
+    private CassandraRecord processPending() throws Exception {
         try {
             maybeInitCassandraClient();
+            completions.drainPermits();
 
-            // we want to fill the buffer
-            // this method will block until we receive at least one record
-            while (newRecords.size() < this.config.getBatchSize()) {
-                final Message<KeyValue<GenericRecord, MutationValue>> msg = consumer.receive(1, TimeUnit.SECONDS);
+            // block on the events topic only when there is no pending query
+            while (pending.size() < this.config.getBatchSize()) {
+                final Message<KeyValue<GenericRecord, MutationValue>> msg = consumer.receive(pending.isEmpty() ? 1000 : 0, TimeUnit.MILLISECONDS);
                 if (msg == null) {
-                    if (!newRecords.isEmpty()) {
-                        log.debug("no message received, buffer size {}", newRecords.size());
-                        // no more records within the timeout, but we have at least one record
-                        break;
-                    } else {
-                        log.debug("no message received");
-                        continue;
-                    }
+                    log.debug("no message received, pending size {}", pending.size());
+                    break;
                 }
-                final KeyValue<GenericRecord, MutationValue> kv = msg.getValue();
-                final GenericRecord mutationKey = kv.getKey();
-                final MutationValue mutationValue = kv.getValue();
-
-                log.debug("Message from producer={} msgId={} key={} value={} schema {}\n",
-                        msg.getProducerName(), msg.getMessageId(), kv.getKey(), kv.getValue(), msg.getReaderSchema().orElse(null));
-
-                List<Object> pk = (List<Object>) mutationKeyConverter.fromConnectData(mutationKey.getNativeObject());
-                // ensure the schema is the one used when building the struct.
-                final ConverterAndQuery converterAndQueryFinal = this.valueConverterAndQuery;
-
-                CompletableFuture<KeyValue<Object, Object>> queryResult = new CompletableFuture<>();
-                // we have to process sequentially the records from the same key
-                // otherwise our mutation cache will not be enough efficient
-                // in deduplicating mutations coming from different nodes
-                executeOrdered(msg.getKey(), () -> {
-                    try {
-                        if (mutationCache.isMutationProcessed(msg.getKey(), mutationValue.getMd5Digest())) {
-                            log.debug("Message key={} md5={} already processed", msg.getKey(), mutationValue.getMd5Digest());
-                            // ignore duplicated mutation
-                            consumer.acknowledge(msg);
-                            queryResult.complete(null);
-                            CacheStats cacheStats = mutationCache.stats();
-                            sourceContext.recordMetric(CACHE_HITS, cacheStats.hitCount());
-                            sourceContext.recordMetric(CACHE_MISSES, cacheStats.missCount());
-                            sourceContext.recordMetric(CACHE_EVICTIONS, cacheStats.evictionCount());
-                            sourceContext.recordMetric(CACHE_SIZE, mutationCache.estimatedSize());
-                            sourceContext.recordMetric(QUERY_LATENCY, 0);
-                            sourceContext.recordMetric(QUERY_EXECUTORS, queryExecutors.size());
-                            if (msg.hasProperty(Constants.WRITETIME))
-                                sourceContext.recordMetric(REPLICATION_LATENCY, System.currentTimeMillis() - (Long.parseLong(msg.getProperty(Constants.WRITETIME)) / 1000L));
-                            return null;
-                        }
-
-                        List<Object> nonNullPkValues = pk.stream().filter(e -> e != null).collect(Collectors.toList());
-                        long start = System.currentTimeMillis();
-                        Tuple3<Row, ConsistencyLevel, UUID> tuple = cassandraClient.selectRow(
-                                nonNullPkValues,
-                                mutationValue.getNodeId(),
-                                Lists.newArrayList(ConsistencyLevel.LOCAL_QUORUM, ConsistencyLevel.LOCAL_ONE),
-                                getSelectStatement(converterAndQueryFinal, nonNullPkValues.size()),
-                                mutationValue.getMd5Digest());
-                        CacheStats cacheStats = mutationCache.stats();
-                        sourceContext.recordMetric(CACHE_HITS, cacheStats.hitCount());
-                        sourceContext.recordMetric(CACHE_MISSES, cacheStats.missCount());
-                        sourceContext.recordMetric(CACHE_EVICTIONS, cacheStats.evictionCount());
-                        sourceContext.recordMetric(CACHE_SIZE, mutationCache.estimatedSize());
-                        long end = System.currentTimeMillis();
-                        sourceContext.recordMetric(QUERY_LATENCY, end - start);
-                        sourceContext.recordMetric(QUERY_EXECUTORS, queryExecutors.size());
-                        batchTotalLatency.addAndGet(end - start);
-                        batchTotalQuery.incrementAndGet();
-                        if (msg.hasProperty(Constants.WRITETIME))
-                            sourceContext.recordMetric(REPLICATION_LATENCY, end - (Long.parseLong(msg.getProperty(Constants.WRITETIME)) / 1000L));
-                        Object value = tuple._1 == null ? this.emptyValue : converterAndQueryFinal.getConverter().toConnectData(tuple._1);
-                        if (ConsistencyLevel.LOCAL_QUORUM.equals(tuple._2()) &&
-                                (!config.getCacheOnlyIfCoordinatorMatch() || (tuple._3 != null && tuple._3.equals(mutationValue.getNodeId())))) {
-                            log.debug("Caching mutation key={} md5={} pk={}", msg.getKey(), mutationValue.getMd5Digest(), nonNullPkValues);
-                            // cache the mutation digest if the coordinator is the source of this event.
-                            mutationCache.addMutationMd5(msg.getKey(), mutationValue.getMd5Digest());
-                        } else {
-                            log.debug("Not caching mutation key={} md5={} pk={} CL={} coordinator={}",
-                            msg.getKey(), mutationValue.getMd5Digest(), nonNullPkValues, tuple._2(), tuple._3());
-                        }
-                        Object key = config.isAvroOutputFormat() ? msg.getKeyBytes() : keyConverter.fromConnectData(mutationKey.getNativeObject());
-                        queryResult.complete(new KeyValue(key, value));
-                    } catch (Throwable err) {
-                        queryResult.completeExceptionally(err);
-                    }
-                    return null;
-                });
-                final CassandraRecord record = createRecord(converterAndQueryFinal, queryResult, msg);
-                newRecords.add(record);
+                pending.add(submit(msg));
             }
-            Preconditions.checkState(!newRecords.isEmpty(), "Buffer cannot be empty here");
-            List<CassandraRecord> usefulRecords = new ArrayList<>(newRecords.size());
-            int cacheHits = 0;
-            long start = System.currentTimeMillis();
-            // wait for all queries to complete
-            for (CassandraRecord record : newRecords) {
-                KeyValue res = record.getQueryResult().join();
-                if (res != null) {
-                    // if the result is "null" the mutation has been discarded
-                    usefulRecords.add(record);
-                } else {
-                    cacheHits++;
-                }
+
+            CassandraRecord record = pending.pollCompleted(this::handleQueryFailure);
+            if (record != null) {
+                consecutiveUnavailableException = 0;
+            } else if (!pending.isEmpty()) {
+                // wait for a completion, or poll the events topic again if the window is not full
+                completions.tryAcquire(pending.size() < this.config.getBatchSize() ? 10 : 1000, TimeUnit.MILLISECONDS);
             }
-            long duration = System.currentTimeMillis() - start;
-            long throughput = duration > 0 ? (1000L * newRecords.size()) / duration : 0;
-            log.debug("Query time for {} msg in {} ms throughput={} msg/s cacheHits={}", newRecords.size(), duration, throughput, cacheHits);
-            if (batchTotalQuery.get() > 0) {
-                adjustExecutors();
+            return record;
+        } catch (com.datastax.oss.driver.api.core.AllNodesFailedException e) {
+            log.info("AllNodesFailedException:", e);
+            backoffRetry(e);
+            return null;
+        } catch (Throwable e) {
+            log.error("Unrecoverable error:", e);
+            for (CassandraRecord record : pending) {
+                negativeAcknowledge(consumer, record.getMutationMessage());
             }
-            consecutiveUnavailableException = 0;
-            return usefulRecords;
+            pending.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * Fail the mutation and the pending mutations of the same key, to get them redelivered in order.
+     * The tasks of the following mutations are skipped by the query executor, so they do not cache their digest.
+     */
+    private void handleQueryFailure(CassandraRecord failedRecord, List<CassandraRecord> followingRecords) {
+        try {
+            failedRecord.getQueryResult().join();
         } catch (CompletionException e) {
             Throwable e2 = e.getCause();
             if (e2 instanceof ExecutionException) {
@@ -594,34 +710,185 @@ public class CassandraSource implements Source<GenericRecord>, SchemaChangeListe
             }
             log.info("CompletionException cause:", e2);
 
+            negativeAcknowledge(consumer, failedRecord.getMutationMessage());
+            for (CassandraRecord record : followingRecords) {
+                negativeAcknowledge(consumer, record.getMutationMessage());
+            }
+
             if (e2 instanceof com.datastax.oss.driver.api.core.servererrors.ReadTimeoutException ||
                     e2 instanceof com.datastax.oss.driver.api.core.servererrors.OverloadedException) {
-                decreaseExecutors(e2);
+                decreaseMaxInflight(e2);
             } else if (e2 instanceof com.datastax.oss.driver.api.core.AllNodesFailedException) {
                 // just retry
             } else {
                 log.warn("Unexpected exception class=" + e.getClass() + " message=" + e.getMessage() + " cause={}" + e.getCause(), e);
                 throw e;
             }
-
-            for (CassandraRecord record : newRecords) {
-                negativeAcknowledge(consumer, record.getMutationMessage()); // fail every message in the buffer
-            }
             backoffRetry(e2);
-            return Collections.emptyList();
-        } catch (com.datastax.oss.driver.api.core.AllNodesFailedException e) {
-            log.info("AllNodesFailedException:", e);
-            for (CassandraRecord record : newRecords) {
-                negativeAcknowledge(consumer, record.getMutationMessage()); // fail every message in the buffer
+        }
+    }
+
+    /**
+     * Process the mutation asynchronously.
+     *
+     * @return the record completed when its value is known
+     */
+    @SuppressWarnings("unchecked")
+    private CassandraRecord submit(final Message<KeyValue<GenericRecord, MutationValue>> msg) throws Exception {
+        final KeyValue<GenericRecord, MutationValue> kv = msg.getValue();
+        final GenericRecord mutationKey = kv.getKey();
+        final MutationValue mutationValue = kv.getValue();
+
+        log.debug("Message from producer={} msgId={} key={} value={} schema {}\n",
+                msg.getProducerName(), msg.getMessageId(), kv.getKey(), kv.getValue(), msg.getReaderSchema().orElse(null));
+
+        List<Object> pk = (List<Object>) mutationKeyConverter.fromConnectData(mutationKey.getNativeObject());
+        // ensure the schema is the one used when building the struct.
+        final ConverterAndQuery converterAndQueryFinal = this.valueConverterAndQuery;
+
+        // we have to process sequentially the records from the same key
+        // otherwise our mutation cache will not be enough efficient
+        // in deduplicating mutations coming from different nodes
+        final MutationCache.Digest digest = MutationCache.Digest.of(mutationValue);
+        coalescer.received(msg.getKey());
+        // the task completes when the following task of the key can start, with the record result
+        // the task is skipped when a previous mutation of the key failed, the mutation is then redelivered
+        CompletableFuture<KeyValue<Object, Object>> queryResult = queryExecutor.<CompletableFuture<KeyValue<Object, Object>>>submit(msg.getKey(), () -> {
+            // a following mutation of the same key has been received, so it has been written before its read
+            final CompletableFuture<KeyValue<Object, Object>> coalesced = coalescer.coalesce(msg.getKey());
+            if (coalesced != null) {
+                log.debug("Coalescing mutation key={} digest={} with the following mutation", msg.getKey(), digest);
+                return CompletableFuture.completedFuture(coalesced.whenComplete((kv, e) -> {
+                    if (e == null && kv == null) {
+                        consumer.acknowledge(msg);
+                        sourceContext.recordMetric(COALESCED_MUTATIONS, coalescedMutations.incrementAndGet());
+                    }
+                }));
             }
-            backoffRetry(e);
-            return Collections.emptyList();
-        } catch (Throwable e) {
-            log.error("Unrecoverable error:", e);
-            for (CassandraRecord record : newRecords) {
-                negativeAcknowledge(consumer, record.getMutationMessage());
+
+            // coalesced mutations wait for the row read by this mutation, even if already processed
+            final List<CompletableFuture<KeyValue<Object, Object>>> waiting = coalescer.take(msg.getKey());
+            try {
+                final boolean processed = mutationCache.isMutationProcessed(msg.getKey(), digest);
+                if (processed && waiting == null) {
+                    log.debug("Message key={} digest={} already processed", msg.getKey(), digest);
+                    // ignore duplicated mutation
+                    consumer.acknowledge(msg);
+                    CacheStats cacheStats = mutationCache.stats();
+                    sourceContext.recordMetric(CACHE_HITS, cacheStats.hitCount());
+                    sourceContext.recordMetric(CACHE_MISSES, cacheStats.missCount());
+                    sourceContext.recordMetric(CACHE_EVICTIONS, cacheStats.evictionCount());
+                    sourceContext.recordMetric(CACHE_SIZE, mutationCache.estimatedSize());
+                    sourceContext.recordMetric(QUERY_LATENCY, 0);
+                    sourceContext.recordMetric(QUERY_INFLIGHT_LIMIT, inflightPermits.getLimit());
+                    if (msg.hasProperty(Constants.WRITETIME))
+                        sourceContext.recordMetric(REPLICATION_LATENCY, System.currentTimeMillis() - (Long.parseLong(msg.getProperty(Constants.WRITETIME)) / 1000L));
+                    return CompletableFuture.completedFuture(CompletableFuture.completedFuture(null));
+                }
+
+                List<Object> nonNullPkValues = pk.stream().filter(e -> e != null).collect(Collectors.toList());
+                Long writeTime = msg.hasProperty(Constants.WRITETIME) ? Long.parseLong(msg.getProperty(Constants.WRITETIME)) : null;
+                MutationOperation operation = mutationValue.getOperation();
+                // only row deletes skip the read, the writes of a row share its routing key and are received by this instance
+                if (writeTimeCache != null && writeTime != null && operation != null) {
+                    if (!operation.isDelete()) {
+                        writeTimeCache.addWriteTime(msg.getKey(), writeTime);
+                    } else if (waiting == null
+                            && nonNullPkValues.size() == converterAndQueryFinal.primaryKeyClause.length
+                            && !writeTimeCache.mayHaveWriteAfter(msg.getKey(), writeTime)) {
+                        // no later write may have resurrected the row, emit the tombstone without reading
+                        log.debug("Emitting tombstone key={} digest={} pk={}", msg.getKey(), digest, nonNullPkValues);
+                        return CompletableFuture.completedFuture(CompletableFuture.completedFuture(
+                                completeWithoutQuery(msg, mutationKey, digest, this.emptyValue)));
+                    }
+                }
+
+                Row rowImage = waiting == null ? getRowImage(converterAndQueryFinal, nonNullPkValues.size(), mutationValue) : null;
+                if (rowImage != null) {
+                    log.debug("Emitting row image key={} digest={} pk={}", msg.getKey(), digest, nonNullPkValues);
+                    return CompletableFuture.completedFuture(CompletableFuture.completedFuture(completeWithoutQuery(msg, mutationKey, digest,
+                            converterAndQueryFinal.getConverter().toConnectData(rowImage))));
+                }
+
+                final PreparedStatement statement = getSelectStatement(converterAndQueryFinal, nonNullPkValues.size(), mutationValue);
+                final PartitionReadPlanner planner = this.partitionReadPlanner;
+                // the permit only bounds the CQL reads, not the coalesced, cached or short-circuited mutations
+                acquireInflightPermit();
+                final int inflight = inflightPermits.inflight();
+                final long start = System.currentTimeMillis();
+                final long startNanos = System.nanoTime();
+                CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> read;
+                try {
+                    read = planner != null && planner.accepts(converterAndQueryFinal, nonNullPkValues.size(), statement)
+                            ? planner.selectRow(converterAndQueryFinal, nonNullPkValues, mutationValue.getNodeId(), statement)
+                            : cassandraClient.selectRowAsync(
+                                    nonNullPkValues,
+                                    mutationValue.getNodeId(),
+                                    Lists.newArrayList(ConsistencyLevel.LOCAL_QUORUM, ConsistencyLevel.LOCAL_ONE),
+                                    statement,
+                                    String.valueOf(digest));
+                } catch (RuntimeException e) {
+                    inflightPermits.release();
+                    throw e;
+                }
+                read = read.whenComplete((r, e) -> inflightPermits.release());
+                CompletableFuture<KeyValue<Object, Object>> result = read.thenApplyAsync(tuple -> {
+                    CacheStats cacheStats = mutationCache.stats();
+                    sourceContext.recordMetric(CACHE_HITS, cacheStats.hitCount());
+                    sourceContext.recordMetric(CACHE_MISSES, cacheStats.missCount());
+                    sourceContext.recordMetric(CACHE_EVICTIONS, cacheStats.evictionCount());
+                    sourceContext.recordMetric(CACHE_SIZE, mutationCache.estimatedSize());
+                    sourceContext.recordMetric(CACHE_FILTER_NEGATIVES, mutationCache.filterNegativeCount());
+                    long end = System.currentTimeMillis();
+                    inflightLimiter.onSample(System.nanoTime() - startNanos, inflight);
+                    sourceContext.recordMetric(QUERY_LATENCY, end - start);
+                    sourceContext.recordMetric(QUERY_INFLIGHT_LIMIT, inflightLimiter.getLimit());
+                    sourceContext.recordMetric(QUERY_INFLIGHT, inflight);
+                    sourceContext.recordMetric(QUERY_LONG_RTT, inflightLimiter.getLongRttMs());
+                    if (msg.hasProperty(Constants.WRITETIME))
+                        sourceContext.recordMetric(REPLICATION_LATENCY, end - (Long.parseLong(msg.getProperty(Constants.WRITETIME)) / 1000L));
+                    Object value = tuple._1 == null ? this.emptyValue : converterAndQueryFinal.getConverter().toConnectData(tuple._1);
+                    if (processed) {
+                        log.debug("Read mutation key={} digest={} pk={} for the coalesced mutations", msg.getKey(), digest, nonNullPkValues);
+                    } else if (ConsistencyLevel.LOCAL_QUORUM.equals(tuple._2()) &&
+                            (!config.getCacheOnlyIfCoordinatorMatch() || (tuple._3 != null && tuple._3.equals(mutationValue.getNodeId())))) {
+                        log.debug("Caching mutation key={} digest={} pk={}", msg.getKey(), digest, nonNullPkValues);
+                        // cache the mutation digest if the coordinator is the source of this event.
+                        mutationCache.addMutationDigest(msg.getKey(), digest);
+                    } else {
+                        log.debug("Not caching mutation key={} digest={} pk={} CL={} coordinator={}",
+                                msg.getKey(), digest, nonNullPkValues, tuple._2(), tuple._3());
+                    }
+                    Object key = config.isAvroOutputFormat() ? msg.getKeyBytes() : keyConverter.fromConnectData(mutationKey.getNativeObject());
+                    return new KeyValue<>(key, value);
+                }, queryExecutor).toCompletableFuture();
+                return MutationCoalescer.complete(waiting, result, processed).thenApply(kv -> {
+                    if (processed) {
+                        // the last coalesced mutation emits the read row
+                        consumer.acknowledge(msg);
+                        return CompletableFuture.<KeyValue<Object, Object>>completedFuture(null);
+                    }
+                    return CompletableFuture.completedFuture(kv);
+                });
+            } catch (RuntimeException e) {
+                // the coalesced mutations are redelivered with this one
+                MutationCoalescer.fail(waiting, e);
+                throw e;
             }
-            throw e;
+        }, () -> coalescer.skipped(msg.getKey())).thenCompose(Function.identity());
+        queryResult.whenComplete((r, e) -> completions.release());
+        return createRecord(converterAndQueryFinal, queryResult, msg);
+    }
+
+    /**
+     * Block the executor thread until a CQL query can be executed.
+     */
+    private void acquireInflightPermit() {
+        try {
+            inflightPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an in-flight query permit", e);
         }
     }
 
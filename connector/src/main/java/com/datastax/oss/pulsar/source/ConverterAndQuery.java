@@ -22,6 +22,10 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 
 @Data
@@ -61,6 +65,37 @@ public class ConverterAndQuery {
 
     final ConcurrentMap<Integer, PreparedStatement> preparedStatements;
 
+    /**
+     * Schema version of the mutation column bitmaps, see {@link com.datastax.oss.cdc.ColumnBitmap}.
+     */
+    final int columnBitmapVersion;
+
+    /**
+     * Column bitmap index of each projection clause column, -1 for the primary key columns.
+     */
+    final int[] projectionBitmapIndexes;
+
+    /**
+     * Prepared statements reading the mutated columns, by column bitmap.
+     */
+    final ConcurrentMap<BitSet, PreparedStatement> projectedStatements;
+
+    /**
+     * Number of partition key columns, the leading columns of the primary key clause.
+     */
+    final int partitionKeyLength;
+
+    /**
+     * True if the rows of a partition can be read with an IN relation on the clustering columns,
+     * the table has clustering columns and no non-frozen collection is selected.
+     */
+    final boolean partitionReadable;
+
+    /**
+     * Prepared statements reading several rows of a partition, by number of rows.
+     */
+    final ConcurrentMap<Integer, PreparedStatement> partitionStatements;
+
     /**
      * When requesting a partition, the projection clause contains only static columns.
      * When requesting a wide row, the projection clause contains regular and static columns
@@ -72,4 +107,37 @@ public class ConverterAndQuery {
                 ? projectionClause
                 : staticProjectionClause;
     }
+
+    /**
+     * @return the projection clause followed by the clustering columns it does not include
+     */
+    public CqlIdentifier[] getPartitionProjectionClause() {
+        List<CqlIdentifier> projection = new ArrayList<>(Arrays.asList(projectionClause));
+        for (int i = partitionKeyLength; i < primaryKeyClause.length; i++) {
+            if (!projection.contains(primaryKeyClause[i]))
+                projection.add(primaryKeyClause[i]);
+        }
+        return projection.toArray(new CqlIdentifier[0]);
+    }
+
+    /**
+     * When requesting a wide row written by a known set of columns, the projection clause contains
+     * the primary key columns of the projection clause and the mutated columns.
+     * @param mutatedColumns the column bitmap indexes of the mutated columns
+     * @return the projection clause, or null if no replicated column was mutated
+     */
+    public CqlIdentifier[] getProjectionClause(BitSet mutatedColumns) {
+        List<CqlIdentifier> projection = new ArrayList<>(projectionClause.length);
+        boolean mutated = false;
+        for (int i = 0; i < projectionClause.length; i++) {
+            int index = projectionBitmapIndexes[i];
+            if (index < 0) {
+                projection.add(projectionClause[i]);
+            } else if (mutatedColumns.get(index)) {
+                projection.add(projectionClause[i]);
+                mutated = true;
+            }
+        }
+        return mutated ? projection.toArray(new CqlIdentifier[0]) : null;
+    }
 }
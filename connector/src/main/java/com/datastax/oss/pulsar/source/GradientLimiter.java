@@ -0,0 +1,114 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.pulsar.source;
+
+/**
+ * Adaptive limit of the in-flight CQL queries, in the style of the Gradient2 concurrency limit algorithm.
+ * <p>
+ * On each query, the limit is multiplied by the gradient between the long-term average RTT and the query RTT,
+ * then increased by a queue allowance of sqrt(limit) to probe for more concurrency. The gradient is bounded
+ * to [0.5, 1], so the limit grows while the latency is stable and shrinks when the latency increases.
+ * Timeouts and overloaded errors decrease the limit by 10 percent.
+ */
+public class GradientLimiter {
+
+    /**
+     * Tolerated ratio of the query RTT to the long-term RTT before decreasing the limit.
+     */
+    static final double RTT_TOLERANCE = 1.5;
+
+    /**
+     * Weight of a new limit estimation.
+     */
+    static final double SMOOTHING = 0.2;
+
+    /**
+     * Number of samples of the long-term RTT exponential moving average.
+     */
+    static final int LONG_WINDOW = 600;
+
+    final InflightPermits permits;
+
+    double estimatedLimit;
+    double longRttNanos;
+    long lastRttNanos;
+    long samples;
+
+    public GradientLimiter(InflightPermits permits) {
+        this.permits = permits;
+        this.estimatedLimit = permits.getLimit();
+    }
+
+    /**
+     * Update the limit with the RTT of a completed query.
+     *
+     * @param rttNanos the query RTT in nanoseconds
+     * @param inflight the number of in-flight queries
+     */
+    public synchronized void onSample(long rttNanos, int inflight) {
+        lastRttNanos = rttNanos;
+        if (samples < LONG_WINDOW) {
+            samples++;
+            longRttNanos += (rttNanos - longRttNanos) / samples;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) * 2.0 / (LONG_WINDOW + 1);
+        }
+        // the latency is back to normal after a prolonged overload, let the long-term RTT recover faster
+        if (longRttNanos > 2.0 * rttNanos)
+            longRttNanos *= 0.95;
+        // the limit is not reached, nothing tells it could be higher
+        if (inflight < estimatedLimit / 2)
+            return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRttNanos / Math.max(1L, rttNanos)));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        apply(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+    }
+
+    /**
+     * Decrease the limit by 10 percent on a query timeout or overload.
+     *
+     * @return the new limit
+     */
+    public synchronized int onDrop() {
+        apply(estimatedLimit * 0.9);
+        return permits.getLimit();
+    }
+
+    private void apply(double newLimit) {
+        estimatedLimit = Math.max(1, Math.min(permits.maxLimit, newLimit));
+        if ((int) estimatedLimit != permits.getLimit())
+            permits.setLimit((int) estimatedLimit);
+    }
+
+    public int getLimit() {
+        return permits.getLimit();
+    }
+
+    /**
+     * @return the long-term average RTT in milliseconds
+     */
+    public synchronized long getLongRttMs() {
+        return (long) longRttNanos / 1_000_000L;
+    }
+
+    /**
+     * @return the last sampled RTT in milliseconds
+     */
+    public synchronized long getLastRttMs() {
+        return lastRttNanos / 1_000_000L;
+    }
+}
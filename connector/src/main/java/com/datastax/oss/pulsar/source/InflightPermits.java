@@ -0,0 +1,88 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.pulsar.source;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounds the number of in-flight asynchronous CQL queries, with a limit adjustable at runtime.
+ */
+public class InflightPermits {
+
+    static final class ResizableSemaphore extends Semaphore {
+        ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        void reduce(int reduction) {
+            reducePermits(reduction);
+        }
+    }
+
+    final ResizableSemaphore semaphore;
+
+    /**
+     * Upper bound of the limit.
+     */
+    final int maxLimit;
+
+    volatile int limit;
+
+    public InflightPermits(int maxLimit) {
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+        this.semaphore = new ResizableSemaphore(maxLimit);
+    }
+
+    /**
+     * Block until a query can be executed.
+     */
+    public void acquire() throws InterruptedException {
+        semaphore.acquire();
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Set the maximum number of in-flight queries, queries above the new limit complete normally.
+     * @param newLimit the new limit, bounded to [1, maxLimit]
+     * @return the applied limit
+     */
+    public synchronized int setLimit(int newLimit) {
+        newLimit = Math.max(1, Math.min(maxLimit, newLimit));
+        int delta = newLimit - limit;
+        if (delta > 0) {
+            semaphore.release(delta);
+        } else if (delta < 0) {
+            semaphore.reduce(-delta);
+        }
+        limit = newLimit;
+        return newLimit;
+    }
+
+    /**
+     * @return the number of in-flight queries
+     */
+    public int inflight() {
+        return Math.max(0, limit - semaphore.availablePermits());
+    }
+}
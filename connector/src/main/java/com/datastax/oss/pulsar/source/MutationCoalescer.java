@@ -0,0 +1,141 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.pulsar.source;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Coalesce the mutations of a hot key with a following mutation of the same key reading the row.
+ * <p>
+ * When a mutation starts while a following mutation of the same key is queued, it waits for the read of the
+ * following mutation instead of reading the row. The following mutation decides when it starts: if it reads
+ * the row, the coalesced mutations are discarded once the read succeeds. If it does not emit its own record
+ * (already processed), it still reads the row and the last coalesced mutation is emitted with the read value.
+ * The coalesced mutations fail with the read, to get them redelivered.
+ * <p>
+ * Mutations of a key are started in order by the {@link OrderedExecutor}, so the coalesced mutations of a key
+ * are only updated by its running task.
+ *
+ * @param <V> the record value type
+ */
+public class MutationCoalescer<V> {
+
+    final boolean enabled;
+
+    /**
+     * Number of received mutations not yet started by key.
+     */
+    final ConcurrentMap<String, Integer> queuedMutations = new ConcurrentHashMap<>();
+
+    /**
+     * Started mutations waiting for the read of a following mutation by key.
+     */
+    final ConcurrentMap<String, List<CompletableFuture<V>>> coalescedMutations = new ConcurrentHashMap<>();
+
+    /**
+     * @param enabled false when the read row does not hold the columns of the coalesced mutations,
+     *                for example when only the mutated columns are read.
+     */
+    public MutationCoalescer(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Count a received mutation, before submitting its task.
+     */
+    public void received(String key) {
+        if (enabled)
+            queuedMutations.merge(key, 1, Integer::sum);
+    }
+
+    /**
+     * Called when the task of a mutation starts.
+     *
+     * @return a future completed with the value read by a following mutation, null when discarded,
+     * or null if no following mutation is queued and the mutation should be processed.
+     */
+    public CompletableFuture<V> coalesce(String key) {
+        if (!enabled || queuedMutations.compute(key, (k, v) -> v == null || v <= 1 ? null : v - 1) == null)
+            return null;
+        CompletableFuture<V> coalesced = new CompletableFuture<>();
+        coalescedMutations.computeIfAbsent(key, k -> new ArrayList<>()).add(coalesced);
+        return coalesced;
+    }
+
+    /**
+     * Called instead of {@link #coalesce} when the task of a mutation is skipped after a failure.
+     */
+    public void skipped(String key) {
+        if (enabled)
+            queuedMutations.computeIfPresent(key, (k, v) -> v <= 1 ? null : v - 1);
+    }
+
+    /**
+     * Called by the task of a mutation not coalesced, to get the mutations waiting for its read.
+     * When not null, the task must read the row and {@link #complete} them.
+     *
+     * @return the coalesced mutations, or null if none
+     */
+    public List<CompletableFuture<V>> take(String key) {
+        return enabled ? coalescedMutations.remove(key) : null;
+    }
+
+    /**
+     * Complete the coalesced mutations with the read of the following mutation.
+     *
+     * @param coalesced the coalesced mutations, may be null
+     * @param read      the read of the following mutation
+     * @param emitLast  true if the following mutation does not emit its own record, the last coalesced mutation
+     *                  is then completed with the read value
+     * @return the read, completed after the coalesced mutations
+     */
+    public static <V> CompletableFuture<V> complete(List<CompletableFuture<V>> coalesced, CompletableFuture<V> read, boolean emitLast) {
+        if (coalesced == null)
+            return read;
+        return read.whenComplete((value, error) -> {
+            if (error != null) {
+                fail(coalesced, error);
+                return;
+            }
+            for (int i = 0; i < coalesced.size(); i++) {
+                coalesced.get(i).complete(emitLast && i == coalesced.size() - 1 ? value : null);
+            }
+        });
+    }
+
+    /**
+     * Fail the coalesced mutations when the following mutation fails before reading the row.
+     *
+     * @param coalesced the coalesced mutations, may be null
+     * @param error     the failure
+     */
+    public static <V> void fail(List<CompletableFuture<V>> coalesced, Throwable error) {
+        if (coalesced == null)
+            return;
+        for (CompletableFuture<V> future : coalesced) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    public void clear() {
+        queuedMutations.clear();
+        coalescedMutations.clear();
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.pulsar.source;
+
+import com.google.common.base.Preconditions;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs asynchronous tasks sequentially per key on a shared work-stealing pool.
+ * <p>
+ * Keys are not pinned to threads: the task of a key is scheduled on any pool thread when the stage returned
+ * by the previous task of the same key completes. The per-key order does not depend on the number of threads,
+ * and a task waiting for a CQL read does not hold a thread. The tasks of a key following a failed task are skipped.
+ */
+@Slf4j
+public class OrderedExecutor implements Executor {
+
+    final ExecutorService pool;
+
+    /**
+     * Last task result of each key, removed when completed without successor.
+     */
+    final ConcurrentMap<Object, CompletableFuture<?>> keyTails = new ConcurrentHashMap<>();
+
+    public OrderedExecutor(int parallelism) {
+        this.pool = Executors.newWorkStealingPool(parallelism);
+    }
+
+    /**
+     * Chain the task after the previous task of the same key.
+     *
+     * @param key  the ordering key
+     * @param task the task, returning the stage it completes with
+     * @return the task result, completed with the unwrapped task exception on failure
+     */
+    public <T> CompletableFuture<T> submit(Object key, Supplier<CompletionStage<T>> task) {
+        return submit(key, task, null);
+    }
+
+    /**
+     * Chain the task after the previous task of the same key. When the previous task fails, the task is skipped
+     * and fails with the same exception, so the key stops on the first failure until its tasks are resubmitted.
+     *
+     * @param key       the ordering key
+     * @param task      the task, returning the stage it completes with
+     * @param onSkipped called instead of the task when the previous task failed, may be null
+     * @return the task result, completed with the unwrapped task exception on failure
+     */
+    public <T> CompletableFuture<T> submit(Object key, Supplier<CompletionStage<T>> task, Runnable onSkipped) {
+        Preconditions.checkArgument(key != null, "key should not be null");
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<?> previous = keyTails.put(key, result);
+        log.debug("Submit task key={} chained={}", key, previous != null);
+        (previous == null ? CompletableFuture.completedFuture(null) : previous)
+                .handleAsync((r, e) -> {
+                    if (e == null)
+                        return task.get();
+                    log.debug("Skip task key={} after failure={}", key, e.toString());
+                    if (onSkipped != null)
+                        onSkipped.run();
+                    CompletableFuture<T> skipped = new CompletableFuture<>();
+                    skipped.completeExceptionally(e);
+                    return skipped;
+                }, pool)
+                .thenCompose(Function.identity())
+                .whenComplete((r, e) -> {
+                    keyTails.remove(key, result);
+                    if (e != null) {
+                        result.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    } else {
+                        result.complete(r);
+                    }
+                });
+        return result;
+    }
+
+    /**
+     * Run an unordered task on the pool.
+     */
+    @Override
+    public void execute(Runnable command) {
+        pool.execute(command);
+    }
+
+    /**
+     * @return the number of keys having a task not completed
+     */
+    public int activeKeys() {
+        return keyTails.size();
+    }
+
+    public void shutdownNow() {
+        pool.shutdownNow();
+        keyTails.clear();
+    }
+}
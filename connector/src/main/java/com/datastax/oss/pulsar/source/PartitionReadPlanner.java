@@ -0,0 +1,265 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.pulsar.source;
+
+import com.datastax.oss.cdc.CassandraClient;
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.internal.core.cql.DefaultRow;
+import com.google.common.collect.Lists;
+import io.vavr.Tuple3;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group the reads of the rows of a same partition, to read them with a single CQL query
+ * having an IN relation on the clustering columns, and fan the rows out to the waiting mutations.
+ */
+@Slf4j
+public class PartitionReadPlanner implements AutoCloseable {
+
+    @RequiredArgsConstructor
+    @EqualsAndHashCode
+    static final class GroupKey {
+        final List<Object> partitionKey;
+        final UUID nodeId;
+    }
+
+    @RequiredArgsConstructor
+    static final class Group {
+        final GroupKey key;
+        final ConverterAndQuery converterAndQuery;
+        final PreparedStatement rowStatement;
+        final List<List<Object>> pkValues = new ArrayList<>();
+        final List<CompletableFuture<Tuple3<Row, ConsistencyLevel, UUID>>> results = new ArrayList<>();
+    }
+
+    final CassandraClient cassandraClient;
+    final int maxRows;
+    final long lingerMs;
+    final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Groups waiting for the linger delay, guarded by this.
+     */
+    final Map<GroupKey, Group> groups = new HashMap<>();
+
+    public PartitionReadPlanner(CassandraClient cassandraClient, int maxRows, long lingerMs) {
+        this.cassandraClient = cassandraClient;
+        this.maxRows = maxRows;
+        this.lingerMs = lingerMs;
+    }
+
+    /**
+     * @param converterAndQuery
+     * @param whereClauseLength the number of columns in the where clause
+     * @param rowStatement      the single row prepared statement
+     * @return true if the row can be read along with the other rows of its partition
+     */
+    public boolean accepts(ConverterAndQuery converterAndQuery, int whereClauseLength, PreparedStatement rowStatement) {
+        return converterAndQuery.partitionReadable
+                && whereClauseLength == converterAndQuery.primaryKeyClause.length
+                && rowStatement == converterAndQuery.getPreparedStatements().get(whereClauseLength);
+    }
+
+    /**
+     * Read a row with the other rows of its partition requested within the linger delay.
+     *
+     * @param converterAndQuery
+     * @param pkValues     the primary key values
+     * @param nodeId       the coordinator node id
+     * @param rowStatement the single row prepared statement, defining the returned row columns
+     * @return the row or null, the consistency level and the coordinator
+     */
+    public CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> selectRow(ConverterAndQuery converterAndQuery,
+                                                                          List<Object> pkValues,
+                                                                          UUID nodeId,
+                                                                          PreparedStatement rowStatement) {
+        CompletableFuture<Tuple3<Row, ConsistencyLevel, UUID>> result = new CompletableFuture<>();
+        GroupKey key = new GroupKey(new ArrayList<>(pkValues.subList(0, converterAndQuery.partitionKeyLength)), nodeId);
+        List<Group> ready = new ArrayList<>(2);
+        synchronized (this) {
+            Group group = groups.get(key);
+            if (group != null && group.converterAndQuery != converterAndQuery) {
+                // schema changed
+                ready.add(groups.remove(key));
+                group = null;
+            }
+            if (group == null) {
+                final Group newGroup = new Group(key, converterAndQuery, rowStatement);
+                groups.put(key, newGroup);
+                scheduler.schedule(() -> flush(newGroup), lingerMs, TimeUnit.MILLISECONDS);
+                group = newGroup;
+            }
+            group.pkValues.add(pkValues);
+            group.results.add(result);
+            if (group.pkValues.size() >= maxRows) {
+                ready.add(groups.remove(key));
+            }
+        }
+        for (Group group : ready)
+            execute(group);
+        return result;
+    }
+
+    void flush(Group group) {
+        synchronized (this) {
+            if (!groups.remove(group.key, group))
+                return;
+        }
+        execute(group);
+    }
+
+    void execute(Group group) {
+        if (group.pkValues.size() == 1) {
+            selectRow(group, 0);
+            return;
+        }
+
+        // prepare the statement asynchronously, the scheduler thread must not block
+        ConverterAndQuery converterAndQuery = group.converterAndQuery;
+        int rows = group.pkValues.size();
+        PreparedStatement statement = converterAndQuery.getPartitionStatements().get(rows);
+        CompletionStage<PreparedStatement> prepared;
+        try {
+            prepared = statement != null
+                    ? CompletableFuture.completedFuture(statement)
+                    : cassandraClient.prepareSelectInAsync(
+                            converterAndQuery.keyspaceName,
+                            converterAndQuery.tableName,
+                            converterAndQuery.getPartitionProjectionClause(),
+                            converterAndQuery.primaryKeyClause,
+                            converterAndQuery.partitionKeyLength,
+                            rows)
+                    .thenApply(newStatement -> {
+                        PreparedStatement previous = converterAndQuery.getPartitionStatements().putIfAbsent(rows, newStatement);
+                        return previous == null ? newStatement : previous;
+                    });
+        } catch (Throwable error) {
+            fail(group, error);
+            return;
+        }
+        prepared.whenComplete((preparedStatement, error) -> {
+            if (error != null) {
+                fail(group, error);
+            } else {
+                selectRows(group, preparedStatement);
+            }
+        });
+    }
+
+    /**
+     * Read the rows of the group with the IN statement, and complete the results by clustering key,
+     * with a null row when the row does not exist.
+     */
+    void selectRows(Group group, PreparedStatement statement) {
+        try {
+            ConverterAndQuery converterAndQuery = group.converterAndQuery;
+            int partitionKeyLength = converterAndQuery.partitionKeyLength;
+            int clusteringLength = converterAndQuery.primaryKeyClause.length - partitionKeyLength;
+            List<Object> values = new ArrayList<>(group.key.partitionKey);
+            for (List<Object> pk : group.pkValues)
+                values.addAll(pk.subList(partitionKeyLength, pk.size()));
+            BoundStatement boundStatement = statement.bind(values.toArray());
+
+            cassandraClient.selectRowsAsync(boundStatement, group.key.nodeId,
+                            Lists.newArrayList(ConsistencyLevel.LOCAL_QUORUM, ConsistencyLevel.LOCAL_ONE))
+                    .whenComplete((tuple, error) -> {
+                        if (error != null) {
+                            fail(group, error);
+                            return;
+                        }
+                        // index the rows by serialized clustering key
+                        Map<List<ByteBuffer>, Row> rows = new HashMap<>();
+                        for (Row row : tuple._1) {
+                            List<ByteBuffer> clusteringKey = new ArrayList<>(clusteringLength);
+                            for (int i = partitionKeyLength; i < converterAndQuery.primaryKeyClause.length; i++)
+                                clusteringKey.add(row.getBytesUnsafe(converterAndQuery.primaryKeyClause[i]));
+                            rows.put(clusteringKey, row);
+                        }
+                        ColumnDefinitions definitions = group.rowStatement.getResultSetDefinitions();
+                        for (int j = 0; j < group.results.size(); j++) {
+                            List<ByteBuffer> clusteringKey = new ArrayList<>(clusteringLength);
+                            for (int i = 0; i < clusteringLength; i++)
+                                clusteringKey.add(boundStatement.getBytesUnsafe(partitionKeyLength + j * clusteringLength + i));
+                            // the IN query ran with the same consistency levels as the single row query,
+                            // so an absent row is a deleted row
+                            Row row = rows.get(clusteringKey);
+                            group.results.get(j).complete(new Tuple3<>(row == null ? null : project(row, definitions), tuple._2, tuple._3));
+                        }
+                    });
+        } catch (Throwable error) {
+            fail(group, error);
+        }
+    }
+
+    void fail(Group group, Throwable error) {
+        for (CompletableFuture<Tuple3<Row, ConsistencyLevel, UUID>> result : group.results)
+            result.completeExceptionally(error);
+    }
+
+    /**
+     * Read the j-th row of the group with the single row statement.
+     */
+    void selectRow(Group group, int j) {
+        CompletableFuture<Tuple3<Row, ConsistencyLevel, UUID>> result = group.results.get(j);
+        cassandraClient.selectRowAsync(group.pkValues.get(j), group.key.nodeId,
+                        Lists.newArrayList(ConsistencyLevel.LOCAL_QUORUM, ConsistencyLevel.LOCAL_ONE),
+                        group.rowStatement, null)
+                .whenComplete((tuple, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(tuple);
+                    }
+                });
+    }
+
+    /**
+     * @return the row restricted to the columns of the single row statement
+     */
+    Row project(Row row, ColumnDefinitions definitions) {
+        List<ByteBuffer> data = new ArrayList<>(definitions.size());
+        for (ColumnDefinition definition : definitions) {
+            CqlIdentifier name = definition.getName();
+            data.add(row.getBytesUnsafe(name));
+        }
+        return new DefaultRow(definitions, data, cassandraClient.getCqlSession().getContext());
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.pulsar.source;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Records received and not yet emitted, in the events topic order.
+ * <p>
+ * Records of different keys are emitted as soon as completed, the records of a key complete in order,
+ * so the first completed record never follows a pending record of the same key.
+ *
+ * @param <R> the record type
+ */
+public class ReorderWindow<R> implements Iterable<R> {
+
+    final ArrayDeque<R> records = new ArrayDeque<>();
+    final Function<R, String> keyFunction;
+    final Function<R, ? extends CompletableFuture<?>> resultFunction;
+
+    /**
+     * @param keyFunction    the ordering key of a record
+     * @param resultFunction the result of a record, completed with null when the record is discarded
+     */
+    public ReorderWindow(Function<R, String> keyFunction, Function<R, ? extends CompletableFuture<?>> resultFunction) {
+        this.keyFunction = keyFunction;
+        this.resultFunction = resultFunction;
+    }
+
+    public void add(R record) {
+        records.add(record);
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    public boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    public void clear() {
+        records.clear();
+    }
+
+    @Override
+    public Iterator<R> iterator() {
+        return records.iterator();
+    }
+
+    /**
+     * Remove and return the first completed record.
+     * When the first completed record failed, it is removed with the pending records of the same key,
+     * to get them redelivered in order.
+     *
+     * @param onFailure called with the failed record and the removed records of the same key
+     * @return the completed record, or null if no record is completed yet or a record failed
+     */
+    public R pollCompleted(BiConsumer<R, List<R>> onFailure) {
+        for (Iterator<R> it = records.iterator(); it.hasNext(); ) {
+            R record = it.next();
+            CompletableFuture<?> result = resultFunction.apply(record);
+            if (!result.isDone())
+                continue;
+            it.remove();
+            if (result.isCompletedExceptionally()) {
+                String key = keyFunction.apply(record);
+                List<R> following = new ArrayList<>();
+                while (it.hasNext()) {
+                    R next = it.next();
+                    if (key.equals(keyFunction.apply(next))) {
+                        following.add(next);
+                        it.remove();
+                    }
+                }
+                onFailure.accept(record, following);
+                return null;
+            }
+            if (result.join() != null) {
+                return record;
+            }
+            // if the result is "null" the record has been discarded
+        }
+        return null;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CassandraClientTests {
+
+    static CqlIdentifier[] columns(String... names) {
+        CqlIdentifier[] identifiers = new CqlIdentifier[names.length];
+        for (int i = 0; i < names.length; i++)
+            identifiers[i] = CqlIdentifier.fromInternal(names[i]);
+        return identifiers;
+    }
+
+    @Test
+    public final void testSelectIn() throws Exception {
+        assertEquals("SELECT pk,ck,v FROM ks.tbl WHERE pk=? AND ck IN (?, ?, ?)",
+                CassandraClient.buildSelectIn("ks", "tbl", columns("pk", "ck", "v"), columns("pk", "ck"), 1, 3));
+    }
+
+    @Test
+    public final void testSelectInCompositeKeys() throws Exception {
+        assertEquals("SELECT a,b,c,d,v FROM ks.tbl WHERE a=? AND b=? AND (c, d) IN ((?, ?), (?, ?))",
+                CassandraClient.buildSelectIn("ks", "tbl", columns("a", "b", "c", "d", "v"), columns("a", "b", "c", "d"), 2, 2));
+    }
+
+    @Test
+    public final void testSelectInQuotedClusteringColumn() throws Exception {
+        assertEquals("SELECT pk,\"Ck\" FROM ks.tbl WHERE pk=? AND \"Ck\" IN (?, ?)",
+                CassandraClient.buildSelectIn("ks", "tbl", columns("pk", "Ck"), columns("pk", "Ck"), 1, 2));
+    }
+
+    static AsyncResultSet page(AsyncResultSet nextPage, Row... rows) {
+        AsyncResultSet resultSet = mock(AsyncResultSet.class);
+        when(resultSet.currentPage()).thenReturn(Arrays.asList(rows));
+        when(resultSet.hasMorePages()).thenReturn(nextPage != null);
+        if (nextPage != null)
+            when(resultSet.fetchNextPage()).thenReturn(CompletableFuture.completedFuture(nextPage));
+        return resultSet;
+    }
+
+    @Test
+    public final void testFetchAllPages() throws Exception {
+        Row row1 = mock(Row.class);
+        Row row2 = mock(Row.class);
+        Row row3 = mock(Row.class);
+        AsyncResultSet resultSet = page(page(page(null, row3), row2), row1);
+        List<Row> rows = CassandraClient.fetchAllPages(resultSet, new ArrayList<>()).toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(row1, row2, row3), rows);
+    }
+}
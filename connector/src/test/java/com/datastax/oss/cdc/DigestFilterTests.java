@@ -0,0 +1,60 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DigestFilterTests {
+
+    @Test
+    public final void testMightContain() throws Exception {
+        DigestFilter filter = new DigestFilter(1000, Duration.ofHours(1));
+        assertEquals(false, filter.mightContain(1L, 2L, 3L));
+        filter.add(1L, 2L, 3L);
+        assertEquals(true, filter.mightContain(1L, 2L, 3L));
+        assertEquals(false, filter.mightContain(1L, 2L, 4L));
+    }
+
+    @Test
+    public final void testFalsePositiveRate() throws Exception {
+        DigestFilter filter = new DigestFilter(1000, Duration.ofHours(1));
+        for (long i = 0; i < 1000; i++)
+            filter.add(i, i * 31, i * 17);
+        for (long i = 0; i < 1000; i++)
+            assertEquals(true, filter.mightContain(i, i * 31, i * 17));
+        int positives = 0;
+        for (long i = 1000; i < 11000; i++) {
+            if (filter.mightContain(i, i * 31, i * 17))
+                positives++;
+        }
+        assertTrue(positives < 500, "false positives=" + positives);
+    }
+
+    @Test
+    public final void testRetention() throws Exception {
+        DigestFilter filter = new DigestFilter(1000, Duration.ofSeconds(1));
+        filter.add(1L, 2L, 3L);
+        Thread.sleep(500);
+        assertEquals(true, filter.mightContain(1L, 2L, 3L));
+        Thread.sleep(1500);
+        assertEquals(false, filter.mightContain(1L, 2L, 3L));
+    }
+}
@@ -16,10 +16,14 @@
 package com.datastax.oss.cdc;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class MutationCacheTests {
 
@@ -31,6 +35,13 @@ public class MutationCacheTests {
         mutationCache.addMutationMd5("mutation1","digest3");
         mutationCache.addMutationMd5("mutation1","digest4");
         assertEquals(3L, mutationCache.getMutationCRCs("mutation1").size());
+        // the oldest digest has been overwritten
+        assertEquals(false, mutationCache.isMutationProcessed("mutation1","digest1"));
+        assertEquals(true, mutationCache.isMutationProcessed("mutation1","digest2"));
+        assertEquals(true, mutationCache.isMutationProcessed("mutation1","digest4"));
+        mutationCache.addMutationMd5("mutation1","digest4");
+        assertEquals(true, mutationCache.isMutationProcessed("mutation1","digest2"));
+        assertEquals(false, mutationCache.isMutationProcessed("mutation2","digest4"));
     }
 
     @Test
@@ -51,4 +62,46 @@ public class MutationCacheTests {
         assertEquals(false, mutationCache.isMutationProcessed("mutation1","digest1"));
     }
 
+    @Test
+    public final void testBinaryDigest() throws Exception {
+        MutationCache<String> mutationCache = new MutationCache<>(3, 10, Duration.ofHours(1));
+        byte[] digest = new byte[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15};
+        mutationCache.addMutationDigest("mutation1", MutationCache.Digest.of(digest));
+        assertEquals(true, mutationCache.isMutationProcessed("mutation1", MutationCache.Digest.of(digest.clone())));
+        assertEquals(true, mutationCache.isMutationProcessed("mutation1", "000102030405060708090a0b0c0d0e0f"));
+        assertEquals(false, mutationCache.isMutationProcessed("mutation1", "digest1"));
+    }
+
+    @Test
+    public final void testNullDigest() throws Exception {
+        MutationCache<String> mutationCache = new MutationCache<>(3, 10, Duration.ofHours(1));
+        mutationCache.addMutationMd5("mutation1", null);
+        assertEquals(null, mutationCache.getMutationCRCs("mutation1"));
+        assertEquals(false, mutationCache.isMutationProcessed("mutation1", (String) null));
+        mutationCache.addMutationMd5("mutation1","digest1");
+        assertEquals(false, mutationCache.isMutationProcessed("mutation1", (String) null));
+    }
+
+    @Test
+    public final void testSnapshot(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("mutation.cache");
+        MutationCache<String> mutationCache = new MutationCache<>(3, 10, Duration.ofSeconds(2));
+        mutationCache.addMutationMd5("mutation1","digest1");
+        mutationCache.addMutationMd5("mutation1","digest2");
+        mutationCache.addMutationMd5("mutation2","digest3");
+        assertEquals(2, mutationCache.snapshot(file));
+
+        MutationCache<String> reloaded = new MutationCache<>(3, 10, Duration.ofSeconds(2));
+        assertEquals(2, reloaded.load(file));
+        assertEquals(true, reloaded.isMutationProcessed("mutation1","digest1"));
+        assertEquals(true, reloaded.isMutationProcessed("mutation1","digest2"));
+        assertEquals(true, reloaded.isMutationProcessed("mutation2","digest3"));
+        assertEquals(false, reloaded.isMutationProcessed("mutation2","digest1"));
+
+        // reloaded entries keep their original expiration time
+        Thread.sleep(3000);
+        assertEquals(false, reloaded.isMutationProcessed("mutation1","digest1"));
+        assertEquals(0, new MutationCache<String>(3, 10, Duration.ofSeconds(2)).load(file));
+        assertThrows(IOException.class, () -> new MutationCache<String>(4, 10, Duration.ofSeconds(2)).load(file));
+    }
 }
@@ -0,0 +1,86 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.cdc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WriteTimeCacheTests {
+
+    /**
+     * A writetime in microseconds, after the cache creation.
+     */
+    static long writeTime() {
+        return (System.currentTimeMillis() + 1000L) * 1000L;
+    }
+
+    @Test
+    public final void testMayHaveWriteAfter() throws Exception {
+        WriteTimeCache<String> writeTimeCache = new WriteTimeCache<>(10);
+        long t = writeTime();
+        assertEquals(false, writeTimeCache.mayHaveWriteAfter("partition1", t + 100L));
+        writeTimeCache.addWriteTime("partition1", t + 200L);
+        writeTimeCache.addWriteTime("partition1", t + 150L);
+        assertEquals(true, writeTimeCache.mayHaveWriteAfter("partition1", t + 100L));
+        assertEquals(true, writeTimeCache.mayHaveWriteAfter("partition1", t + 199L));
+        assertEquals(false, writeTimeCache.mayHaveWriteAfter("partition1", t + 200L));
+        assertEquals(false, writeTimeCache.mayHaveWriteAfter("partition2", t + 100L));
+    }
+
+    @Test
+    public final void testClientTimestamp() throws Exception {
+        WriteTimeCache<String> writeTimeCache = new WriteTimeCache<>(1);
+        long t = writeTime();
+        // INSERT ... USING TIMESTAMP with a timestamp one day ahead, then a delete at the wall clock time
+        long clientTimestamp = t + Duration.ofDays(1).toMillis() * 1000L;
+        writeTimeCache.addWriteTime("key1", clientTimestamp);
+        assertEquals(true, writeTimeCache.mayHaveWriteAfter("key1", t));
+        // whichever key is evicted, the delete is still known to be shadowed by the future write
+        writeTimeCache.addWriteTime("key2", t);
+        writeTimeCache.writeTimes.cleanUp();
+        assertEquals(1L, writeTimeCache.writeTimes.estimatedSize());
+        assertEquals(true, writeTimeCache.mayHaveWriteAfter("key1", t + 100L));
+        // a delete with a later client timestamp wins over the write
+        assertEquals(false, writeTimeCache.mayHaveWriteAfter("key1", clientTimestamp + 1L));
+    }
+
+    @Test
+    public final void testDeleteBeforeCreation() throws Exception {
+        long deleteTime = (System.currentTimeMillis() - 1000L) * 1000L;
+        WriteTimeCache<String> writeTimeCache = new WriteTimeCache<>(10);
+        // a later write may have been processed before a restart
+        assertEquals(true, writeTimeCache.mayHaveWriteAfter("partition1", deleteTime));
+    }
+
+    @Test
+    public final void testSizeEviction() throws Exception {
+        WriteTimeCache<String> writeTimeCache = new WriteTimeCache<>(1);
+        long t = writeTime();
+        writeTimeCache.addWriteTime("partition1", t + 100L);
+        writeTimeCache.addWriteTime("partition2", t + 200L);
+        writeTimeCache.writeTimes.cleanUp();
+        assertEquals(1L, writeTimeCache.writeTimes.estimatedSize());
+
+        // an evicted write may follow the delete
+        long evicted = writeTimeCache.evictedWriteTime.get();
+        assertEquals(true, evicted == t + 100L || evicted == t + 200L);
+        assertEquals(true, writeTimeCache.mayHaveWriteAfter("partition3", evicted));
+        assertEquals(false, writeTimeCache.mayHaveWriteAfter("partition3", t + 300L));
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.pulsar.source;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GradientLimiterTests {
+
+    static final long MS = 1_000_000L;
+
+    @Test
+    public final void testStableLatency() throws Exception {
+        InflightPermits permits = new InflightPermits(100);
+        permits.setLimit(10);
+        GradientLimiter limiter = new GradientLimiter(permits);
+        for (int i = 0; i < 1000; i++)
+            limiter.onSample(10 * MS, permits.getLimit());
+        assertEquals(100, limiter.getLimit());
+        assertEquals(10L, limiter.getLongRttMs());
+    }
+
+    @Test
+    public final void testIncreasingLatency() throws Exception {
+        InflightPermits permits = new InflightPermits(100);
+        GradientLimiter limiter = new GradientLimiter(permits);
+        for (int i = 0; i < 100; i++)
+            limiter.onSample(10 * MS, permits.getLimit());
+        assertEquals(100, limiter.getLimit());
+        for (int i = 0; i < 10; i++)
+            limiter.onSample(50 * MS, permits.getLimit());
+        assertTrue(limiter.getLimit() < 50, "limit=" + limiter.getLimit());
+        assertEquals(50L, limiter.getLastRttMs());
+    }
+
+    @Test
+    public final void testNotLimited() throws Exception {
+        InflightPermits permits = new InflightPermits(100);
+        permits.setLimit(10);
+        GradientLimiter limiter = new GradientLimiter(permits);
+        for (int i = 0; i < 100; i++)
+            limiter.onSample(10 * MS, 2);
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public final void testConnectorDefaults() throws Exception {
+        // query.maxInflight=512 bounded by batch.size=200, at most 200 mutations have an in-flight query
+        InflightPermits permits = new InflightPermits(Math.min(512, 200));
+        GradientLimiter limiter = new GradientLimiter(permits);
+        for (int i = 0; i < 100; i++)
+            limiter.onSample(10 * MS, Math.min(200, permits.getLimit()));
+        assertEquals(200, limiter.getLimit());
+        for (int i = 0; i < 10; i++)
+            limiter.onSample(50 * MS, Math.min(200, permits.getLimit()));
+        assertTrue(limiter.getLimit() < 100, "limit=" + limiter.getLimit());
+    }
+
+    @Test
+    public final void testDrop() throws Exception {
+        InflightPermits permits = new InflightPermits(100);
+        GradientLimiter limiter = new GradientLimiter(permits);
+        assertEquals(90, limiter.onDrop());
+        assertEquals(81, limiter.onDrop());
+        for (int i = 0; i < 100; i++)
+            limiter.onDrop();
+        assertEquals(1, limiter.getLimit());
+    }
+}
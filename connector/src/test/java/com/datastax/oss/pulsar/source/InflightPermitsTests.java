@@ -0,0 +1,44 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.pulsar.source;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InflightPermitsTests {
+
+    @Test
+    public final void testSetLimit() throws Exception {
+        InflightPermits permits = new InflightPermits(4);
+        permits.acquire();
+        permits.acquire();
+        assertEquals(2, permits.inflight());
+
+        assertEquals(1, permits.setLimit(0));
+        assertFalse(permits.semaphore.tryAcquire());
+        permits.release();
+        permits.release();
+        assertEquals(0, permits.inflight());
+        assertTrue(permits.semaphore.tryAcquire());
+        permits.release();
+
+        assertEquals(4, permits.setLimit(10));
+        assertEquals(4, permits.semaphore.availablePermits());
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.pulsar.source;
+
+import com.datastax.oss.cdc.MutationCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MutationCoalescerTests {
+
+    OrderedExecutor executor;
+    MutationCache<String> mutationCache;
+    AtomicInteger reads;
+    Supplier<CompletableFuture<String>> read;
+
+    @BeforeEach
+    public void setUp() {
+        executor = new OrderedExecutor(4);
+        mutationCache = new MutationCache<>(3, 10, Duration.ofHours(1));
+        reads = new AtomicInteger();
+        read = () -> CompletableFuture.completedFuture("row" + reads.incrementAndGet());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Process a mutation like the source connector: discard it if already processed, otherwise read the row
+     * and cache its digest. The result is null when the mutation is discarded.
+     */
+    CompletableFuture<String> submit(MutationCoalescer<String> coalescer, String key, String digest) {
+        coalescer.received(key);
+        return executor.<CompletableFuture<String>>submit(key, () -> {
+            CompletableFuture<String> coalesced = coalescer.coalesce(key);
+            if (coalesced != null)
+                return CompletableFuture.completedFuture(coalesced);
+
+            List<CompletableFuture<String>> waiting = coalescer.take(key);
+            boolean processed = mutationCache.isMutationProcessed(key, digest);
+            if (processed && waiting == null)
+                return CompletableFuture.completedFuture(CompletableFuture.completedFuture(null));
+
+            CompletableFuture<String> result = read.get().thenApply(row -> {
+                if (!processed)
+                    mutationCache.addMutationMd5(key, digest);
+                return row;
+            });
+            return MutationCoalescer.complete(waiting, result, processed)
+                    .thenApply(row -> CompletableFuture.completedFuture(processed ? null : row));
+        }, () -> coalescer.skipped(key)).thenCompose(Function.identity());
+    }
+
+    /**
+     * Block the key until the returned future is completed, so that the following mutations are queued.
+     */
+    CompletableFuture<Void> blockKey(String key) {
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        executor.submit(key, () -> gate);
+        return gate;
+    }
+
+    List<String> records(List<CompletableFuture<String>> results) throws Exception {
+        List<String> records = new ArrayList<>();
+        for (CompletableFuture<String> result : results) {
+            String record = result.get(1, TimeUnit.SECONDS);
+            if (record != null)
+                records.add(record);
+        }
+        return records;
+    }
+
+    @Test
+    public final void testReplicaCopies() throws Exception {
+        MutationCoalescer<String> coalescer = new MutationCoalescer<>(true);
+        CompletableFuture<Void> gate = blockKey("key1");
+        // the same mutation emitted by two replicas
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        results.add(submit(coalescer, "key1", "digest1"));
+        results.add(submit(coalescer, "key1", "digest1"));
+        gate.complete(null);
+
+        List<String> records = records(results);
+        assertEquals(1, records.size());
+        assertEquals("row1", records.get(0));
+        assertEquals(1, reads.get());
+        assertEquals(1, mutationCache.getMutationCRCs("key1").size());
+        assertEquals(0, coalescer.queuedMutations.size());
+        assertEquals(0, coalescer.coalescedMutations.size());
+
+        // a late replica copy is a duplicate
+        assertEquals(null, submit(coalescer, "key1", "digest1").get(1, TimeUnit.SECONDS));
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public final void testProcessedFollower() throws Exception {
+        MutationCoalescer<String> coalescer = new MutationCoalescer<>(true);
+        mutationCache.addMutationMd5("key1", "digest2");
+        CompletableFuture<Void> gate = blockKey("key1");
+        CompletableFuture<String> first = submit(coalescer, "key1", "digest1");
+        CompletableFuture<String> duplicate = submit(coalescer, "key1", "digest2");
+        gate.complete(null);
+
+        // the duplicate reads the row for the coalesced mutation
+        assertEquals("row1", first.get(1, TimeUnit.SECONDS));
+        assertEquals(null, duplicate.get(1, TimeUnit.SECONDS));
+        // the coalesced digest is not cached
+        assertEquals(false, mutationCache.isMutationProcessed("key1", "digest1"));
+    }
+
+    @Test
+    public final void testHotKey() throws Exception {
+        MutationCoalescer<String> coalescer = new MutationCoalescer<>(true);
+        CompletableFuture<Void> gate = blockKey("key1");
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            results.add(submit(coalescer, "key1", "digest" + i));
+        results.add(submit(coalescer, "key2", "digest0"));
+        gate.complete(null);
+
+        List<String> records = records(results);
+        assertEquals(2, records.size());
+        assertEquals(2, reads.get());
+        assertEquals(null, results.get(0).get());
+        assertTrue(results.get(4).get() != null);
+        assertEquals(false, mutationCache.isMutationProcessed("key1", "digest0"));
+        assertEquals(true, mutationCache.isMutationProcessed("key1", "digest4"));
+    }
+
+    @Test
+    public final void testReadFailure() throws Exception {
+        MutationCoalescer<String> coalescer = new MutationCoalescer<>(true);
+        CompletableFuture<String> failedRead = new CompletableFuture<>();
+        read = () -> failedRead;
+        CompletableFuture<Void> gate = blockKey("key1");
+        CompletableFuture<String> first = submit(coalescer, "key1", "digest1");
+        CompletableFuture<String> second = submit(coalescer, "key1", "digest2");
+        gate.complete(null);
+        Thread.sleep(100);
+        assertEquals(false, first.isDone());
+
+        // both mutations are redelivered
+        failedRead.completeExceptionally(new IllegalStateException("read timeout"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        assertEquals(false, mutationCache.isMutationProcessed("key1", "digest1"));
+    }
+
+    @Test
+    public final void testFailedKey() throws Exception {
+        MutationCoalescer<String> coalescer = new MutationCoalescer<>(true);
+        CompletableFuture<Void> gate = blockKey("key1");
+        CompletableFuture<String> first = submit(coalescer, "key1", "digest1");
+        CompletableFuture<String> second = submit(coalescer, "key1", "digest2");
+        gate.completeExceptionally(new IllegalStateException("read timeout"));
+
+        // the following mutations are redelivered, they are not processed
+        assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+        assertEquals(0, reads.get());
+        assertEquals(false, mutationCache.isMutationProcessed("key1", "digest1"));
+        assertEquals(false, mutationCache.isMutationProcessed("key1", "digest2"));
+        assertEquals(0, coalescer.queuedMutations.size());
+
+        // the redelivered mutations are processed
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        results.add(submit(coalescer, "key1", "digest1"));
+        results.add(submit(coalescer, "key1", "digest2"));
+        assertTrue(records(results).size() >= 1);
+        assertEquals(true, mutationCache.isMutationProcessed("key1", "digest2"));
+    }
+
+    @Test
+    public final void testDisabled() throws Exception {
+        MutationCoalescer<String> coalescer = new MutationCoalescer<>(false);
+        CompletableFuture<Void> gate = blockKey("key1");
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        results.add(submit(coalescer, "key1", "digest1"));
+        results.add(submit(coalescer, "key1", "digest2"));
+        gate.complete(null);
+
+        assertEquals(2, records(results).size());
+        assertEquals(2, reads.get());
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.pulsar.source;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderedExecutorTests {
+
+    @Test
+    public final void testOrderPerKey() throws Exception {
+        OrderedExecutor executor = new OrderedExecutor(4);
+        try {
+            List<Integer> runs = Collections.synchronizedList(new ArrayList<>());
+            CompletableFuture<Void> read = new CompletableFuture<>();
+            // the first task waits for an asynchronous read, the second task of the same key must wait for it
+            CompletableFuture<Integer> first = executor.submit("key1", () -> {
+                runs.add(1);
+                return read.thenApply(v -> 1);
+            });
+            CompletableFuture<Integer> second = executor.submit("key1", () -> {
+                runs.add(2);
+                return CompletableFuture.completedFuture(2);
+            });
+            // another key is not blocked
+            assertEquals(3, executor.submit("key2", () -> CompletableFuture.completedFuture(3)).get(1, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(false, second.isDone());
+            assertEquals(1, runs.size());
+
+            read.complete(null);
+            assertEquals(2, second.get(1, TimeUnit.SECONDS));
+            assertEquals(1, first.get());
+            assertEquals(2, runs.get(1));
+            assertEquals(0, executor.activeKeys());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public final void testFailure() throws Exception {
+        OrderedExecutor executor = new OrderedExecutor(2);
+        try {
+            CompletableFuture<Void> read = new CompletableFuture<>();
+            CompletableFuture<Integer> failed = executor.submit("key1", () -> read.thenApply(v -> {
+                throw new IllegalStateException("failed");
+            }));
+            // the following tasks of the same key are skipped
+            AtomicInteger runs = new AtomicInteger();
+            AtomicInteger skips = new AtomicInteger();
+            CompletableFuture<Integer> next = executor.submit("key1", () -> {
+                runs.incrementAndGet();
+                return CompletableFuture.completedFuture(2);
+            }, skips::incrementAndGet);
+            CompletableFuture<Integer> last = executor.submit("key1", () -> {
+                runs.incrementAndGet();
+                return CompletableFuture.completedFuture(3);
+            });
+            CompletableFuture<Integer> other = executor.submit("key2", () -> CompletableFuture.completedFuture(4));
+            read.complete(null);
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            e = assertThrows(ExecutionException.class, () -> next.get(1, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertThrows(ExecutionException.class, () -> last.get(1, TimeUnit.SECONDS));
+            assertEquals(0, runs.get());
+            assertEquals(1, skips.get());
+            assertEquals(4, other.get(1, TimeUnit.SECONDS));
+
+            // a task submitted after the failed chain runs
+            assertEquals(5, executor.submit("key1", () -> CompletableFuture.completedFuture(5)).get(1, TimeUnit.SECONDS));
+            assertEquals(0, executor.activeKeys());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
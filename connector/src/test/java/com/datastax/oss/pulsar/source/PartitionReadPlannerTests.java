@@ -0,0 +1,307 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.pulsar.source;
+
+import com.datastax.oss.cdc.CassandraClient;
+import com.datastax.oss.driver.api.core.ConsistencyLevel;
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.context.DriverContext;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import io.vavr.Tuple3;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PartitionReadPlannerTests {
+
+    static final CqlIdentifier PK = CqlIdentifier.fromInternal("pk");
+    static final CqlIdentifier CK = CqlIdentifier.fromInternal("ck");
+    static final CqlIdentifier V = CqlIdentifier.fromInternal("v");
+
+    static final UUID NODE1 = UUID.randomUUID();
+    static final UUID NODE2 = UUID.randomUUID();
+
+    CassandraClient cassandraClient;
+    PreparedStatement rowStatement;
+    PreparedStatement inStatement;
+    ConverterAndQuery converterAndQuery;
+    PartitionReadPlanner planner;
+
+    /**
+     * Rows stored in the table, as [pk, ck] lists.
+     */
+    List<List<Object>> table;
+
+    /**
+     * Bound values of the executed IN statements.
+     */
+    List<Object[]> boundValues;
+
+    @BeforeEach
+    public void setUp() {
+        table = Collections.synchronizedList(new ArrayList<>());
+        boundValues = Collections.synchronizedList(new ArrayList<>());
+        cassandraClient = mock(CassandraClient.class);
+        CqlSession cqlSession = mock(CqlSession.class);
+        when(cqlSession.getContext()).thenReturn(mock(DriverContext.class));
+        when(cassandraClient.getCqlSession()).thenReturn(cqlSession);
+
+        ColumnDefinitions definitions = mock(ColumnDefinitions.class);
+        List<ColumnDefinition> columns = new ArrayList<>();
+        for (CqlIdentifier name : new CqlIdentifier[]{PK, CK, V}) {
+            ColumnDefinition column = mock(ColumnDefinition.class);
+            when(column.getName()).thenReturn(name);
+            columns.add(column);
+        }
+        when(definitions.size()).thenReturn(columns.size());
+        when(definitions.iterator()).thenAnswer(invocation -> columns.iterator());
+        rowStatement = mock(PreparedStatement.class);
+        when(rowStatement.getResultSetDefinitions()).thenReturn(definitions);
+
+        inStatement = mock(PreparedStatement.class);
+        when(inStatement.bind(any())).thenAnswer(invocation -> {
+            Object[] values = invocation.getArguments();
+            boundValues.add(values);
+            BoundStatement boundStatement = mock(BoundStatement.class);
+            when(boundStatement.getBytesUnsafe(anyInt())).thenAnswer(i -> encode(values[i.<Integer>getArgument(0)]));
+            return boundStatement;
+        });
+        when(cassandraClient.prepareSelectInAsync(anyString(), anyString(), any(), any(), anyInt(), anyInt()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(inStatement));
+        // return the stored rows of the partition, in reverse order
+        when(cassandraClient.selectRowsAsync(any(), any(), any())).thenAnswer(invocation -> {
+            Object[] values = boundValues.get(boundValues.size() - 1);
+            List<Row> rows = new ArrayList<>();
+            synchronized (table) {
+                for (List<Object> pk : table) {
+                    if (pk.get(0).equals(values[0]) && Arrays.asList(values).subList(1, values.length).contains(pk.get(1)))
+                        rows.add(0, row((Integer) pk.get(0), (Integer) pk.get(1)));
+                }
+            }
+            return CompletableFuture.completedFuture(new Tuple3<>(rows, ConsistencyLevel.LOCAL_QUORUM, invocation.getArgument(1)));
+        });
+        when(cassandraClient.selectRowAsync(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            List<Object> pk = invocation.getArgument(0);
+            Row row = table.contains(pk) ? row((Integer) pk.get(0), (Integer) pk.get(1)) : null;
+            return CompletableFuture.completedFuture(new Tuple3<>(row, ConsistencyLevel.LOCAL_QUORUM, invocation.getArgument(1)));
+        });
+
+        converterAndQuery = converterAndQuery();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (planner != null)
+            planner.close();
+    }
+
+    ConverterAndQuery converterAndQuery() {
+        return new ConverterAndQuery("ks", "tbl", null,
+                new CqlIdentifier[]{PK, CK, V},
+                new CqlIdentifier[]{PK},
+                new CqlIdentifier[]{PK, CK},
+                new ConcurrentHashMap<>(),
+                0,
+                new int[]{-1, -1, 0},
+                new ConcurrentHashMap<>(),
+                1,
+                true,
+                new ConcurrentHashMap<>());
+    }
+
+    static ByteBuffer encode(Object value) {
+        return (ByteBuffer) ByteBuffer.allocate(4).putInt((Integer) value).flip();
+    }
+
+    static Row row(int pk, int ck) {
+        Row row = mock(Row.class);
+        when(row.getBytesUnsafe(PK)).thenReturn(encode(pk));
+        when(row.getBytesUnsafe(CK)).thenReturn(encode(ck));
+        when(row.getBytesUnsafe(V)).thenReturn(encode(ck * 10));
+        return row;
+    }
+
+    CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> select(int pk, int ck, UUID nodeId) {
+        return planner.selectRow(converterAndQuery, Arrays.asList(pk, ck), nodeId, rowStatement);
+    }
+
+    static void assertRow(int pk, int ck, CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result) throws Exception {
+        Tuple3<Row, ConsistencyLevel, UUID> tuple = result.toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertEquals(encode(pk), tuple._1.getBytesUnsafe(0));
+        assertEquals(encode(ck), tuple._1.getBytesUnsafe(1));
+        assertEquals(encode(ck * 10), tuple._1.getBytesUnsafe(2));
+        assertEquals(ConsistencyLevel.LOCAL_QUORUM, tuple._2);
+    }
+
+    @Test
+    public final void testAccepts() throws Exception {
+        planner = new PartitionReadPlanner(cassandraClient, 10, 10);
+        converterAndQuery.getPreparedStatements().put(2, rowStatement);
+        assertEquals(true, planner.accepts(converterAndQuery, 2, rowStatement));
+        assertEquals(false, planner.accepts(converterAndQuery, 1, rowStatement));
+        assertEquals(false, planner.accepts(converterAndQuery, 2, mock(PreparedStatement.class)));
+    }
+
+    @Test
+    public final void testMaxRowsFlush() throws Exception {
+        planner = new PartitionReadPlanner(cassandraClient, 3, TimeUnit.HOURS.toMillis(1));
+        for (int ck = 0; ck < 3; ck++)
+            table.add(Arrays.asList(1, ck));
+        List<CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>>> results = new ArrayList<>();
+        for (int ck = 0; ck < 3; ck++)
+            results.add(select(1, ck, NODE1));
+        // the group is full, read without waiting for the linger delay
+        for (int ck = 0; ck < 3; ck++)
+            assertRow(1, ck, results.get(ck));
+        verify(cassandraClient, times(1)).prepareSelectInAsync("ks", "tbl", converterAndQuery.getPartitionProjectionClause(),
+                converterAndQuery.primaryKeyClause, 1, 3);
+        verify(cassandraClient, times(1)).selectRowsAsync(any(), eq(NODE1), any());
+        verify(cassandraClient, never()).selectRowAsync(any(), any(), any(), any(), any());
+        assertEquals(Arrays.asList(1, 0, 1, 2), Arrays.asList(boundValues.get(0)));
+        assertEquals(inStatement, converterAndQuery.getPartitionStatements().get(3));
+    }
+
+    @Test
+    public final void testLingerFlush() throws Exception {
+        planner = new PartitionReadPlanner(cassandraClient, 10, 50);
+        table.add(Arrays.asList(1, 0));
+        table.add(Arrays.asList(1, 1));
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result0 = select(1, 0, NODE1);
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result1 = select(1, 1, NODE1);
+        assertEquals(false, result0.toCompletableFuture().isDone());
+        assertRow(1, 0, result0);
+        assertRow(1, 1, result1);
+        verify(cassandraClient, times(1)).selectRowsAsync(any(), eq(NODE1), any());
+        verify(cassandraClient, never()).selectRowAsync(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public final void testGrouping() throws Exception {
+        planner = new PartitionReadPlanner(cassandraClient, 2, TimeUnit.HOURS.toMillis(1));
+        for (int pk = 1; pk <= 2; pk++)
+            for (int ck = 0; ck < 2; ck++)
+                table.add(Arrays.asList(pk, ck));
+        // partitions and coordinators are grouped separately
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result10 = select(1, 0, NODE1);
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result20 = select(2, 0, NODE1);
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result10b = select(1, 0, NODE2);
+        assertEquals(false, result10.toCompletableFuture().isDone());
+        assertEquals(false, result20.toCompletableFuture().isDone());
+        assertEquals(false, result10b.toCompletableFuture().isDone());
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result21 = select(2, 1, NODE1);
+        assertRow(2, 0, result20);
+        assertRow(2, 1, result21);
+        assertEquals(false, result10.toCompletableFuture().isDone());
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result11 = select(1, 1, NODE1);
+        assertRow(1, 0, result10);
+        assertRow(1, 1, result11);
+        assertEquals(false, result10b.toCompletableFuture().isDone());
+        verify(cassandraClient, times(2)).selectRowsAsync(any(), eq(NODE1), any());
+        // the prepared statement is reused
+        verify(cassandraClient, times(1)).prepareSelectInAsync(anyString(), anyString(), any(), any(), anyInt(), eq(2));
+    }
+
+    @Test
+    public final void testSchemaChange() throws Exception {
+        planner = new PartitionReadPlanner(cassandraClient, 10, TimeUnit.HOURS.toMillis(1));
+        table.add(Arrays.asList(1, 0));
+        table.add(Arrays.asList(1, 1));
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result0 = select(1, 0, NODE1);
+        converterAndQuery = converterAndQuery();
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result1 = select(1, 1, NODE1);
+        // the group of the previous schema is read without waiting for the linger delay
+        assertRow(1, 0, result0);
+        verify(cassandraClient, times(1)).selectRowAsync(eq(Arrays.asList(1, 0)), eq(NODE1), any(), eq(rowStatement), any());
+        assertEquals(false, result1.toCompletableFuture().isDone());
+        assertEquals(1, planner.groups.size());
+        assertSame(converterAndQuery, planner.groups.values().iterator().next().converterAndQuery);
+    }
+
+    @Test
+    public final void testMissingRow() throws Exception {
+        planner = new PartitionReadPlanner(cassandraClient, 3, TimeUnit.HOURS.toMillis(1));
+        table.add(Arrays.asList(1, 0));
+        table.add(Arrays.asList(1, 2));
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result0 = select(1, 0, NODE1);
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result1 = select(1, 1, NODE1);
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result2 = select(1, 2, NODE1);
+        // rows are matched by clustering key, not by position
+        assertRow(1, 0, result0);
+        assertRow(1, 2, result2);
+        // the missing row is not read again with the single row statement
+        Tuple3<Row, ConsistencyLevel, UUID> tuple1 = result1.toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertNull(tuple1._1);
+        assertEquals(ConsistencyLevel.LOCAL_QUORUM, tuple1._2);
+        verify(cassandraClient, times(1)).selectRowsAsync(any(), eq(NODE1), any());
+        verify(cassandraClient, never()).selectRowAsync(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public final void testSingleRow() throws Exception {
+        planner = new PartitionReadPlanner(cassandraClient, 10, 10);
+        table.add(Arrays.asList(1, 0));
+        assertRow(1, 0, select(1, 0, NODE1));
+        verify(cassandraClient, times(1)).selectRowAsync(eq(Arrays.asList(1, 0)), eq(NODE1), any(), eq(rowStatement), any());
+        verify(cassandraClient, never()).prepareSelectInAsync(anyString(), anyString(), any(), any(), anyInt(), anyInt());
+        verify(cassandraClient, never()).selectRowsAsync(any(), any(), any());
+    }
+
+    @Test
+    public final void testPrepareFailure() throws Exception {
+        planner = new PartitionReadPlanner(cassandraClient, 2, TimeUnit.HOURS.toMillis(1));
+        CompletableFuture<PreparedStatement> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("prepare failed"));
+        when(cassandraClient.prepareSelectInAsync(anyString(), anyString(), any(), any(), anyInt(), anyInt())).thenReturn(failed);
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result0 = select(1, 0, NODE1);
+        CompletionStage<Tuple3<Row, ConsistencyLevel, UUID>> result1 = select(1, 1, NODE1);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result0.toCompletableFuture().get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertThrows(ExecutionException.class, () -> result1.toCompletableFuture().get(10, TimeUnit.SECONDS));
+        assertNull(converterAndQuery.getPartitionStatements().get(2));
+    }
+}
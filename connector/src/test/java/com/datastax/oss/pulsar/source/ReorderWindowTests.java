@@ -0,0 +1,133 @@
+/**
+ * Copyright DataStax, Inc 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.datastax.oss.pulsar.source;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ReorderWindowTests {
+
+    static final class TestRecord {
+        final String key;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+
+        TestRecord(String key) {
+            this.key = key;
+        }
+    }
+
+    ReorderWindow<TestRecord> window;
+    List<TestRecord> failed;
+    List<TestRecord> removed;
+
+    @BeforeEach
+    public void setUp() {
+        window = new ReorderWindow<>(r -> r.key, r -> r.result);
+        failed = new ArrayList<>();
+        removed = new ArrayList<>();
+    }
+
+    TestRecord add(String key) {
+        TestRecord record = new TestRecord(key);
+        window.add(record);
+        return record;
+    }
+
+    TestRecord poll() {
+        return window.pollCompleted((record, following) -> {
+            failed.add(record);
+            removed.addAll(following);
+        });
+    }
+
+    @Test
+    public final void testCompletionOrder() throws Exception {
+        TestRecord a1 = add("a");
+        TestRecord b1 = add("b");
+        TestRecord a2 = add("a");
+        assertNull(poll());
+
+        // a completed record is emitted before the pending records of other keys
+        b1.result.complete("b1");
+        assertSame(b1, poll());
+        assertNull(poll());
+        a1.result.complete("a1");
+        a2.result.complete("a2");
+        assertSame(a1, poll());
+        assertSame(a2, poll());
+        assertEquals(true, window.isEmpty());
+        assertEquals(0, failed.size());
+    }
+
+    @Test
+    public final void testDiscarded() throws Exception {
+        TestRecord a1 = add("a");
+        TestRecord a2 = add("a");
+        a1.result.complete(null);
+        assertNull(poll());
+        assertEquals(1, window.size());
+        a2.result.complete("a2");
+        assertSame(a2, poll());
+    }
+
+    @Test
+    public final void testFailure() throws Exception {
+        TestRecord a1 = add("a");
+        TestRecord b1 = add("b");
+        TestRecord a2 = add("a");
+        TestRecord a3 = add("a");
+        a1.result.completeExceptionally(new IllegalStateException("read timeout"));
+
+        // the pending records of the failed key are removed, completed or not
+        a2.result.completeExceptionally(new IllegalStateException("read timeout"));
+        assertNull(poll());
+        assertEquals(1, failed.size());
+        assertSame(a1, failed.get(0));
+        assertEquals(2, removed.size());
+        assertSame(a2, removed.get(0));
+        assertSame(a3, removed.get(1));
+        assertEquals(1, window.size());
+
+        // the other keys are not affected
+        assertNull(poll());
+        b1.result.complete("b1");
+        assertSame(b1, poll());
+        assertEquals(1, failed.size());
+        assertEquals(true, window.isEmpty());
+    }
+
+    @Test
+    public final void testFailureAfterCompletedRecords() throws Exception {
+        TestRecord a1 = add("a");
+        TestRecord a2 = add("a");
+        a1.result.complete("a1");
+        a2.result.completeExceptionally(new IllegalStateException("read timeout"));
+        // the completed record is emitted before the failure is handled
+        assertSame(a1, poll());
+        assertEquals(0, failed.size());
+        assertNull(poll());
+        assertSame(a2, failed.get(0));
+        assertEquals(0, removed.size());
+    }
+}